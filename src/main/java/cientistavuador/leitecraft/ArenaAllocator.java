@@ -0,0 +1,203 @@
+package cientistavuador.leitecraft;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ *
+ * @author Cien
+ */
+public class ArenaAllocator {
+
+    public static class Allocation {
+
+        private int offset;
+        private final int size;
+        private boolean freed = false;
+
+        private Allocation(int offset, int size) {
+            this.offset = offset;
+            this.size = size;
+        }
+
+        public int getOffset() {
+            return offset;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public boolean isFreed() {
+            return freed;
+        }
+    }
+
+    public static class Move {
+
+        private final int from;
+        private final int to;
+        private final int size;
+
+        private Move(int from, int to, int size) {
+            this.from = from;
+            this.to = to;
+            this.size = size;
+        }
+
+        public int getFrom() {
+            return from;
+        }
+
+        public int getTo() {
+            return to;
+        }
+
+        public int getSize() {
+            return size;
+        }
+    }
+
+    private int capacity;
+    private int used = 0;
+
+    //offset -> size, neighbors are always coalesced
+    private final TreeMap<Integer, Integer> freeBlocks = new TreeMap<>();
+    private final TreeMap<Integer, Allocation> allocations = new TreeMap<>();
+
+    public ArenaAllocator(int capacity) {
+        if (capacity <= 0) {
+            throw new RuntimeException("Invalid capacity " + capacity);
+        }
+        this.capacity = capacity;
+        this.freeBlocks.put(0, capacity);
+    }
+
+    public Allocation allocate(int size) {
+        if (size <= 0) {
+            throw new RuntimeException("Invalid allocation size " + size);
+        }
+
+        //best fit, keeps the large blocks for the large meshes
+        int bestOffset = -1;
+        int bestSize = Integer.MAX_VALUE;
+        for (Map.Entry<Integer, Integer> block : this.freeBlocks.entrySet()) {
+            int blockSize = block.getValue();
+            if (blockSize >= size && blockSize < bestSize) {
+                bestOffset = block.getKey();
+                bestSize = blockSize;
+                if (blockSize == size) {
+                    break;
+                }
+            }
+        }
+        if (bestOffset == -1) {
+            return null;
+        }
+
+        this.freeBlocks.remove(bestOffset);
+        if (bestSize > size) {
+            this.freeBlocks.put(bestOffset + size, bestSize - size);
+        }
+
+        Allocation allocation = new Allocation(bestOffset, size);
+        this.allocations.put(bestOffset, allocation);
+        this.used += size;
+        return allocation;
+    }
+
+    public void free(Allocation allocation) {
+        if (allocation.freed || this.allocations.get(allocation.offset) != allocation) {
+            throw new RuntimeException("Allocation not owned by this arena");
+        }
+        allocation.freed = true;
+        this.allocations.remove(allocation.offset);
+        this.used -= allocation.size;
+
+        int offset = allocation.offset;
+        int size = allocation.size;
+
+        Map.Entry<Integer, Integer> previous = this.freeBlocks.floorEntry(offset);
+        if (previous != null && previous.getKey() + previous.getValue() == offset) {
+            this.freeBlocks.remove(previous.getKey());
+            offset = previous.getKey();
+            size += previous.getValue();
+        }
+        Integer next = this.freeBlocks.get(offset + size);
+        if (next != null) {
+            this.freeBlocks.remove(offset + size);
+            size += next;
+        }
+        this.freeBlocks.put(offset, size);
+    }
+
+    public List<Move> relocate(int newCapacity) {
+        if (newCapacity < this.used) {
+            throw new RuntimeException("Capacity " + newCapacity + " is smaller than the " + this.used + " used");
+        }
+
+        List<Move> moves = new ArrayList<>();
+        List<Allocation> live = new ArrayList<>(this.allocations.values());
+        this.allocations.clear();
+
+        int offset = 0;
+        for (Allocation allocation : live) {
+            Move last = (moves.isEmpty() ? null : moves.get(moves.size() - 1));
+            if (last != null && last.from + last.size == allocation.offset) {
+                moves.set(moves.size() - 1, new Move(last.from, last.to, last.size + allocation.size));
+            } else {
+                moves.add(new Move(allocation.offset, offset, allocation.size));
+            }
+            allocation.offset = offset;
+            this.allocations.put(offset, allocation);
+            offset += allocation.size;
+        }
+
+        this.capacity = newCapacity;
+        this.freeBlocks.clear();
+        if (offset < newCapacity) {
+            this.freeBlocks.put(offset, newCapacity - offset);
+        }
+
+        return moves;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getUsed() {
+        return used;
+    }
+
+    public int getFree() {
+        return this.capacity - this.used;
+    }
+
+    public int getAllocations() {
+        return this.allocations.size();
+    }
+
+    public int getFreeBlocks() {
+        return this.freeBlocks.size();
+    }
+
+    public int getLargestFreeBlock() {
+        int largest = 0;
+        for (int size : this.freeBlocks.values()) {
+            largest = Math.max(largest, size);
+        }
+        return largest;
+    }
+
+    public float getFragmentation() {
+        int free = getFree();
+        if (free == 0) {
+            return 0f;
+        }
+        return 1f - (((float) getLargestFreeBlock()) / free);
+    }
+
+}
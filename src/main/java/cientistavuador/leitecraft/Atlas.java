@@ -199,33 +199,6 @@ public class Atlas {
             }
         }
 
-        int texture = glGenTextures();
-        glActiveTexture(GL_TEXTURE0);
-        glBindTexture(GL_TEXTURE_2D, texture);
-        
-        for (int i = 0; i < mipLevels.length; i++) {
-            ByteBuffer mipLevel = mipLevels[i];
-            glTexImage2D(GL_TEXTURE_2D, i,
-                    GL_RGBA8, mipWidth[i], mipHeight[i],
-                    0,
-                    GL_RGBA, GL_UNSIGNED_BYTE, mipLevel
-            );
-            if (i == 0) {
-                stbi_image_free(mipLevel);
-            } else {
-                MemoryUtil.memFree(mipLevel);
-            }
-        }
-        
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST_MIPMAP_LINEAR);
-        
-        glTexParameterf(GL_TEXTURE_2D, GL_TEXTURE_MAX_LOD, MAX_TEXTURE_LOD);
-        
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
-        glBindTexture(GL_TEXTURE_2D, 0);
-
         List<AtlasTexture> textures = new ArrayList<>();
 
         try {
@@ -278,30 +251,73 @@ public class Atlas {
 
         System.out.println("Finished loading atlas with size " + width + "x" + height + " and with " + textures.size() + " textures!");
 
-        INSTANCE = new Atlas(texture, textures, width, height);
+        INSTANCE = new Atlas(textures, width, height, mipLevels, mipWidth, mipHeight);
     }
 
     public static Atlas getInstance() {
         return INSTANCE;
     }
 
-    private final int texture;
     private final AtlasTexture[] textures;
     private final Map<String, AtlasTexture> map = new HashMap<>();
     private final int width;
     private final int height;
 
-    private Atlas(int texture, List<AtlasTexture> textures, int width, int height) {
-        this.texture = texture;
+    //uploaded on first use, so blocks and their textures can be loaded without a GL context
+    private int texture = 0;
+    private ByteBuffer[] mipLevels;
+    private int[] mipWidth;
+    private int[] mipHeight;
+
+    private Atlas(List<AtlasTexture> textures, int width, int height, ByteBuffer[] mipLevels, int[] mipWidth, int[] mipHeight) {
         this.textures = textures.toArray(AtlasTexture[]::new);
         for (AtlasTexture e : this.textures) {
             this.map.put(e.getName(), e);
         }
         this.width = width;
         this.height = height;
+        this.mipLevels = mipLevels;
+        this.mipWidth = mipWidth;
+        this.mipHeight = mipHeight;
+    }
+
+    private void upload() {
+        this.texture = glGenTextures();
+        glActiveTexture(GL_TEXTURE0);
+        glBindTexture(GL_TEXTURE_2D, this.texture);
+
+        for (int i = 0; i < this.mipLevels.length; i++) {
+            ByteBuffer mipLevel = this.mipLevels[i];
+            glTexImage2D(GL_TEXTURE_2D, i,
+                    GL_RGBA8, this.mipWidth[i], this.mipHeight[i],
+                    0,
+                    GL_RGBA, GL_UNSIGNED_BYTE, mipLevel
+            );
+            if (i == 0) {
+                stbi_image_free(mipLevel);
+            } else {
+                MemoryUtil.memFree(mipLevel);
+            }
+        }
+
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST_MIPMAP_LINEAR);
+
+        glTexParameterf(GL_TEXTURE_2D, GL_TEXTURE_MAX_LOD, MAX_TEXTURE_LOD);
+
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
+        glBindTexture(GL_TEXTURE_2D, 0);
+
+        this.mipLevels = null;
+        this.mipWidth = null;
+        this.mipHeight = null;
     }
 
     public int getTexture() {
+        if (this.texture == 0) {
+            upload();
+        }
         return texture;
     }
 
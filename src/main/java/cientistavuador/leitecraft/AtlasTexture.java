@@ -29,6 +29,7 @@ public class AtlasTexture {
     private final Vector2f lowerPosition = new Vector2f();
     private final Vector2f higherPosition = new Vector2f();
     private final BlendMode blendMode;
+    private int tileIndex = -1;
     
     public AtlasTexture(String name, int width, int height, float x0, float y0, float x1, float y1, BlendMode mode) {
         this.name = name;
@@ -66,5 +67,13 @@ public class AtlasTexture {
     public BlendMode getBlendMode() {
         return blendMode;
     }
+
+    public int getTileIndex() {
+        return tileIndex;
+    }
+
+    public void setTileIndex(int tileIndex) {
+        this.tileIndex = tileIndex;
+    }
     
 }
@@ -6,114 +6,43 @@ package cientistavuador.leitecraft;
  */
 public class BillboardBlock extends Block {
     
-    public static final float AMBIENT_OCCLUSION = 0.75f;
+    public static final int AMBIENT_OCCLUSION_LEVEL = 1;
     
     public BillboardBlock(int id, AtlasTexture texture) {
         super(id, texture);
     }
 
-    private void writeQuad0(float lightLevel, float x, float y, float z, VerticesStream stream, AtlasTexture texture, boolean backFace) {
-        int blendMode = texture.getBlendMode().getIndex();
-
-        float lowX = texture.getLowerPosition().x();
-        float lowY = texture.getLowerPosition().y();
-
-        float higX = texture.getHigherPosition().x();
-        float higY = texture.getHigherPosition().y();
-        
-        stream.offset();
-
+    private void writeVertex(int x, int y, int z, int u, int v, int aoLevel, int tile, int skyLight, int blockLight, int blendMode, VerticesStream stream) {
         stream.vertex(
                 x, y, z,
-                0f, 1f, 0f,
-                lowX, lowY,
-                blendMode, 0f, 1, AMBIENT_OCCLUSION, lightLevel
-        );
-
-        stream.vertex(
-                x + 1f, y, z + 1f,
-                0f, 1f, 0f,
-                higX, lowY,
-                blendMode, 0f, 1, AMBIENT_OCCLUSION, lightLevel
+                BlockVertices.POSITIVE_Y,
+                u, v,
+                tile,
+                1,
+                aoLevel, skyLight, blockLight,
+                blendMode
         );
+    }
 
-        stream.vertex(
-                x, y + 1f, z,
-                0f, 1f, 0f,
-                lowX, higY,
-                blendMode, 0f, 1, 1f, lightLevel
-        );
+    private void writeQuad(int skyLight, int blockLight, int x0, int z0, int x1, int z1, int y, VerticesStream stream, AtlasTexture texture, boolean backFace) {
+        int blendMode = texture.getBlendMode().getIndex();
 
-        stream.vertex(
-                x + 1f, y + 1f, z + 1f,
-                0f, 1f, 0f,
-                higX, higY,
-                blendMode, 0f, 1, 1f, lightLevel
-        );
+        int tile = texture.getTileIndex();
 
+        writeVertex(x0, y, z0, 0, 0, AMBIENT_OCCLUSION_LEVEL, tile, skyLight, blockLight, blendMode, stream);
         if (backFace) {
-            stream.indices(
-                    0, 2, 1,
-                    1, 2, 3
-            );
+            writeVertex(x0, y + 1, z0, 0, 1, 0, tile, skyLight, blockLight, blendMode, stream);
+            writeVertex(x1, y, z1, 1, 0, AMBIENT_OCCLUSION_LEVEL, tile, skyLight, blockLight, blendMode, stream);
         } else {
-            stream.indices(
-                    0, 1, 2,
-                    1, 3, 2
-            );
+            writeVertex(x1, y, z1, 1, 0, AMBIENT_OCCLUSION_LEVEL, tile, skyLight, blockLight, blendMode, stream);
+            writeVertex(x0, y + 1, z0, 0, 1, 0, tile, skyLight, blockLight, blendMode, stream);
         }
+        writeVertex(x1, y + 1, z1, 1, 1, 0, tile, skyLight, blockLight, blendMode, stream);
     }
     
-    private void writeQuad1(float lightLevel, float x, float y, float z, VerticesStream stream, AtlasTexture texture, boolean backFace) {
-        int blendMode = texture.getBlendMode().getIndex();
-
-        float lowX = texture.getLowerPosition().x();
-        float lowY = texture.getLowerPosition().y();
-
-        float higX = texture.getHigherPosition().x();
-        float higY = texture.getHigherPosition().y();
-        
-        stream.offset();
-
-        stream.vertex(
-                x + 1f, y, z,
-                0f, 1f, 0f,
-                lowX, lowY,
-                blendMode, 0f, 1, AMBIENT_OCCLUSION, lightLevel
-        );
-
-        stream.vertex(
-                x, y, z + 1f,
-                0f, 1f, 0f,
-                higX, lowY,
-                blendMode, 0f, 1, AMBIENT_OCCLUSION, lightLevel
-        );
-
-        stream.vertex(
-                x + 1f, y + 1f, z,
-                0f, 1f, 0f,
-                lowX, higY,
-                blendMode, 0f, 1, 1f, lightLevel
-        );
-
-        stream.vertex(
-                x, y + 1f, z + 1f,
-                0f, 1f, 0f,
-                higX, higY,
-                blendMode, 0f, 1, 1f, lightLevel
-        );
-
-        if (backFace) {
-            stream.indices(
-                    0, 2, 1,
-                    1, 2, 3
-            );
-        } else {
-            stream.indices(
-                    0, 1, 2,
-                    1, 3, 2
-            );
-        }
+    @Override
+    public boolean isGreedyMeshable() {
+        return false;
     }
     
     @Override
@@ -121,12 +50,13 @@ public class BillboardBlock extends Block {
             VerticesStream stream,
             ChunkMatrix matrix
     ) {
-        float lightLevel = matrix.getChunk(0, 0).getLightLevelForRendering(x, y, z);
+        int skyLight = matrix.getSkyLightForRendering(x, y, z);
+        int blockLight = matrix.getBlockLightForRendering(x, y, z);
         
-        writeQuad0(lightLevel, x, y, z, stream, getTexture(0), false);
-        writeQuad0(lightLevel, x, y, z, stream, getTexture(0), true);
-        writeQuad1(lightLevel, x, y, z, stream, getTexture(0), false);
-        writeQuad1(lightLevel, x, y, z, stream, getTexture(0), true);
+        writeQuad(skyLight, blockLight, x, z, x + 1, z + 1, y, stream, getTexture(0), false);
+        writeQuad(skyLight, blockLight, x, z, x + 1, z + 1, y, stream, getTexture(0), true);
+        writeQuad(skyLight, blockLight, x + 1, z, x, z + 1, y, stream, getTexture(0), false);
+        writeQuad(skyLight, blockLight, x + 1, z, x, z + 1, y, stream, getTexture(0), true);
     }
 
 }
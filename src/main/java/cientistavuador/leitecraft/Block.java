@@ -127,6 +127,14 @@ public class Block {
         this.overlayTexture = overlayTexture;
     }
     
+    public boolean isFaceVisible(int neighbor) {
+        return neighbor == 0 || (Blocks.isTransparent(neighbor) && neighbor != this.id);
+    }
+    
+    public boolean isGreedyMeshable() {
+        return !this.alphaEnabled;
+    }
+    
     private void writeBlockFaceVertices(int x, int y, int z, VerticesStream stream, ChunkMatrix matrix, int face) {
         BlockVertices.writeFace(matrix, x, y, z, stream, this.textures[face], this.textures[face + 6], face);
     }
@@ -137,29 +145,29 @@ public class Block {
             ChunkMatrix matrix
             ) {
         
-        Block bNegativeX = matrix.getBlock(x - 1, y, z);
-        Block bPositiveX = matrix.getBlock(x + 1, y, z);
-        Block bNegativeY = matrix.getBlock(x, y - 1, z);
-        Block bPositiveY = matrix.getBlock(x, y + 1, z);
-        Block bNegativeZ = matrix.getBlock(x, y, z - 1);
-        Block bPositiveZ = matrix.getBlock(x, y, z + 1);
+        int bNegativeX = matrix.getBlockIdForRendering(x - 1, y, z);
+        int bPositiveX = matrix.getBlockIdForRendering(x + 1, y, z);
+        int bNegativeY = matrix.getBlockIdForRendering(x, y - 1, z);
+        int bPositiveY = matrix.getBlockIdForRendering(x, y + 1, z);
+        int bNegativeZ = matrix.getBlockIdForRendering(x, y, z - 1);
+        int bPositiveZ = matrix.getBlockIdForRendering(x, y, z + 1);
         
-        if (bNegativeX == Blocks.AIR || (bNegativeX.isTransparent() && bNegativeX != this)) {
+        if (isFaceVisible(bNegativeX)) {
             writeBlockFaceVertices(x, y, z, stream, matrix, BlockVertices.NEGATIVE_X);
         }
-        if (bPositiveX == Blocks.AIR || (bPositiveX.isTransparent() && bPositiveX != this)) {
+        if (isFaceVisible(bPositiveX)) {
             writeBlockFaceVertices(x, y, z, stream, matrix, BlockVertices.POSITIVE_X);
         }
-        if (bNegativeY == Blocks.AIR || (bNegativeY.isTransparent() && bNegativeY != this)) {
+        if (isFaceVisible(bNegativeY)) {
             writeBlockFaceVertices(x, y, z, stream, matrix, BlockVertices.NEGATIVE_Y);
         }
-        if (bPositiveY == Blocks.AIR || (bPositiveY.isTransparent() && bPositiveY != this)) {
+        if (isFaceVisible(bPositiveY)) {
             writeBlockFaceVertices(x, y, z, stream, matrix, BlockVertices.POSITIVE_Y);
         }
-        if (bNegativeZ == Blocks.AIR || (bNegativeZ.isTransparent() && bNegativeZ != this)) {
+        if (isFaceVisible(bNegativeZ)) {
             writeBlockFaceVertices(x, y, z, stream, matrix, BlockVertices.NEGATIVE_Z);
         }
-        if (bPositiveZ == Blocks.AIR || (bPositiveZ.isTransparent() && bPositiveZ != this)) {
+        if (isFaceVisible(bPositiveZ)) {
             writeBlockFaceVertices(x, y, z, stream, matrix, BlockVertices.POSITIVE_Z);
         }
     }
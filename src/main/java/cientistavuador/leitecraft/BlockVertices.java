@@ -15,18 +15,21 @@ public class BlockVertices {
     public static final int NEGATIVE_Z = 4;
     public static final int POSITIVE_Z = 5;
     
-    public static final float MIN_AMBIENT_OCCLUSION = 0.25f;
-    public static final float MAX_AMBIENT_OCCLUSION = 1f;
-    
-    public static float vertexAO(boolean side1, boolean side2, boolean corner) {
-        int aoLevel;
+    public static int vertexAOLevel(boolean side1, boolean side2, boolean corner) {
         if (side1 && side2) {
-            aoLevel = 3;
-        } else {
-            aoLevel = (side1 ? 1 : 0) + (side2 ? 1 : 0) + (corner ? 1 : 0);
+            return 3;
+        }
+        return (side1 ? 1 : 0) + (side2 ? 1 : 0) + (corner ? 1 : 0);
+    }
+    
+    public static int amountOfFrames(AtlasTexture startFrame, AtlasTexture endFrame) {
+        if (endFrame == null) {
+            return 1;
         }
-        float lerp = 1f - (aoLevel / 3f);
-        return MIN_AMBIENT_OCCLUSION + (lerp * (MAX_AMBIENT_OCCLUSION - MIN_AMBIENT_OCCLUSION));
+        int startX = (int) (startFrame.getLowerPosition().x() * Atlas.getInstance().getWidth());
+        int endX = (int) (endFrame.getHigherPosition().x() * Atlas.getInstance().getWidth());
+        
+        return ((endX - startX) + 1) / startFrame.getWidth();
     }
     
     public static void writeFace(ChunkMatrix matrix, int x, int y, int z, VerticesStream stream, AtlasTexture startFrame, AtlasTexture endFrame, int face) {
@@ -53,486 +56,416 @@ public class BlockVertices {
         }
     }
     
-    private static boolean checkBlock(ChunkMatrix matrix, int x, int y, int z) {
-        Block blockAt = matrix.getBlock(x, y, z);
-        if (blockAt == Blocks.AIR) {
-            return false;
-        }
-        return !blockAt.isTransparent();
+    public static boolean checkBlock(ChunkMatrix matrix, int x, int y, int z) {
+        return Blocks.isSolid(matrix.getBlockIdForRendering(x, y, z));
     }
     
     private static void writeNegativeX(ChunkMatrix matrix, int x, int y, int z, VerticesStream stream, AtlasTexture startFrame, AtlasTexture endFrame) {
-        float lowX = startFrame.getLowerPosition().x();
-        float lowY = startFrame.getLowerPosition().y();
-        
-        float higX = startFrame.getHigherPosition().x();
-        float higY = startFrame.getHigherPosition().y();
+        int tile = startFrame.getTileIndex();
         
         int blend = startFrame.getBlendMode().getIndex();
         
-        int amountOfFrames = 1;
-        float frameOffset = 1f;
-        if (endFrame != null) {
-            int startX = (int) (startFrame.getLowerPosition().x() * Atlas.getInstance().getWidth());
-            int endX = (int) (endFrame.getHigherPosition().x() * Atlas.getInstance().getWidth());
-            
-            amountOfFrames = ((endX - startX) + 1) / startFrame.getWidth();
-            frameOffset = ((float)startFrame.getWidth()) / Atlas.getInstance().getWidth();
-        }
+        int amountOfFrames = amountOfFrames(startFrame, endFrame);
         
-        float lightLevel = matrix.getChunk(0, 0).getLightLevelForRendering(x - 1, y, z);
-        
-        stream.offset();
+        int skyLight = matrix.getSkyLightForRendering(x - 1, y, z);
+        int blockLight = matrix.getBlockLightForRendering(x - 1, y, z);
         
         stream.vertex(
-                x + 0f, y + 0f, z + 0f,
-                -1f, 0f, 0f,
-                lowX, lowY,
-                blend,
-                frameOffset, amountOfFrames,
-                vertexAO(
+                x + 0, y + 0, z + 0,
+                NEGATIVE_X,
+                0, 0,
+                tile,
+                amountOfFrames,
+                vertexAOLevel(
                         checkBlock(matrix, x - 1, y, z - 1),
                         checkBlock(matrix, x - 1, y - 1, z),
                         checkBlock(matrix, x - 1, y - 1, z - 1)
                 ),
-                lightLevel
+                skyLight, blockLight,
+                blend
         );
         stream.vertex(
-                x + 0f, y + 0f, z + 1f,
-                -1f, 0f, 0f,
-                higX, lowY,
-                blend,
-                frameOffset, amountOfFrames,
-                vertexAO(
+                x + 0, y + 0, z + 1,
+                NEGATIVE_X,
+                1, 0,
+                tile,
+                amountOfFrames,
+                vertexAOLevel(
                         checkBlock(matrix, x - 1, y, z + 1),
                         checkBlock(matrix, x - 1, y - 1, z),
                         checkBlock(matrix, x - 1, y - 1, z + 1)
                 ),
-                lightLevel
+                skyLight, blockLight,
+                blend
         );
         stream.vertex(
-                x + 0f, y + 1f, z + 0f,
-                -1f, 0f, 0f,
-                lowX, higY,
-                blend,
-                frameOffset, amountOfFrames, 
-                vertexAO(
+                x + 0, y + 1, z + 0,
+                NEGATIVE_X,
+                0, 1,
+                tile,
+                amountOfFrames,
+                vertexAOLevel(
                         checkBlock(matrix, x - 1, y, z - 1),
                         checkBlock(matrix, x - 1, y + 1, z),
                         checkBlock(matrix, x - 1, y + 1, z - 1)
                 ),
-                lightLevel
+                skyLight, blockLight,
+                blend
         );
         stream.vertex(
-                x + 0f, y + 1f, z + 1f,
-                -1f, 0f, 0f,
-                higX, higY,
-                blend,
-                frameOffset, amountOfFrames, 
-                vertexAO(
+                x + 0, y + 1, z + 1,
+                NEGATIVE_X,
+                1, 1,
+                tile,
+                amountOfFrames,
+                vertexAOLevel(
                         checkBlock(matrix, x - 1, y, z + 1),
                         checkBlock(matrix, x - 1, y + 1, z),
                         checkBlock(matrix, x - 1, y + 1, z + 1)
                 ),
-                lightLevel
+                skyLight, blockLight,
+                blend
         );
-        
-        stream.indices(0, 1, 2, 1, 3, 2);
     }
     
     private static void writePositiveX(ChunkMatrix matrix, int x, int y, int z, VerticesStream stream, AtlasTexture startFrame, AtlasTexture endFrame) {
-        float lowX = startFrame.getLowerPosition().x();
-        float lowY = startFrame.getLowerPosition().y();
-        
-        float higX = startFrame.getHigherPosition().x();
-        float higY = startFrame.getHigherPosition().y();
+        int tile = startFrame.getTileIndex();
         
         int blend = startFrame.getBlendMode().getIndex();
         
-        int amountOfFrames = 1;
-        float frameOffset = 1f;
-        if (endFrame != null) {
-            int startX = (int) (startFrame.getLowerPosition().x() * Atlas.getInstance().getWidth());
-            int endX = (int) (endFrame.getHigherPosition().x() * Atlas.getInstance().getWidth());
-            
-            amountOfFrames = ((endX - startX) + 1) / startFrame.getWidth();
-            frameOffset = ((float)startFrame.getWidth()) / Atlas.getInstance().getWidth();
-        }
+        int amountOfFrames = amountOfFrames(startFrame, endFrame);
         
-        float lightLevel = matrix.getChunk(0, 0).getLightLevelForRendering(x + 1, y, z);
-        
-        stream.offset();
+        int skyLight = matrix.getSkyLightForRendering(x + 1, y, z);
+        int blockLight = matrix.getBlockLightForRendering(x + 1, y, z);
         
         stream.vertex(
-                x + 1f, y + 0f, z + 1f,
-                1f, 0f, 0f,
-                lowX, lowY,
-                blend,
-                frameOffset, amountOfFrames,
-                vertexAO(
+                x + 1, y + 0, z + 1,
+                POSITIVE_X,
+                0, 0,
+                tile,
+                amountOfFrames,
+                vertexAOLevel(
                         checkBlock(matrix, x + 1, y, z + 1),
                         checkBlock(matrix, x + 1, y - 1, z),
                         checkBlock(matrix, x + 1, y - 1, z + 1)
                 ),
-                lightLevel
+                skyLight, blockLight,
+                blend
         );
         stream.vertex(
-                x + 1f, y + 0f, z + 0f,
-                1f, 0f, 0f,
-                higX, lowY,
-                blend,
-                frameOffset, amountOfFrames,
-                vertexAO(
+                x + 1, y + 0, z + 0,
+                POSITIVE_X,
+                1, 0,
+                tile,
+                amountOfFrames,
+                vertexAOLevel(
                         checkBlock(matrix, x + 1, y, z - 1),
                         checkBlock(matrix, x + 1, y - 1, z),
                         checkBlock(matrix, x + 1, y - 1, z - 1)
                 ),
-                lightLevel
+                skyLight, blockLight,
+                blend
         );
         stream.vertex(
-                x + 1f, y + 1f, z + 1f,
-                1f, 0f, 0f,
-                lowX, higY,
-                blend,
-                frameOffset, amountOfFrames, 
-                vertexAO(
+                x + 1, y + 1, z + 1,
+                POSITIVE_X,
+                0, 1,
+                tile,
+                amountOfFrames,
+                vertexAOLevel(
                         checkBlock(matrix, x + 1, y, z + 1),
                         checkBlock(matrix, x + 1, y + 1, z),
                         checkBlock(matrix, x + 1, y + 1, z + 1)
                 ),
-                lightLevel
+                skyLight, blockLight,
+                blend
         );
         stream.vertex(
-                x + 1f, y + 1f, z + 0f,
-                1f, 0f, 0f,
-                higX, higY,
-                blend,
-                frameOffset, amountOfFrames, 
-                vertexAO(
+                x + 1, y + 1, z + 0,
+                POSITIVE_X,
+                1, 1,
+                tile,
+                amountOfFrames,
+                vertexAOLevel(
                         checkBlock(matrix, x + 1, y, z - 1),
                         checkBlock(matrix, x + 1, y + 1, z),
                         checkBlock(matrix, x + 1, y + 1, z - 1)
                 ),
-                lightLevel
+                skyLight, blockLight,
+                blend
         );
-        
-        stream.indices(0, 1, 2, 1, 3, 2);
     }
     
     private static void writeNegativeY(ChunkMatrix matrix, int x, int y, int z, VerticesStream stream, AtlasTexture startFrame, AtlasTexture endFrame) {
-        float lowX = startFrame.getLowerPosition().x();
-        float lowY = startFrame.getLowerPosition().y();
-        
-        float higX = startFrame.getHigherPosition().x();
-        float higY = startFrame.getHigherPosition().y();
+        int tile = startFrame.getTileIndex();
         
         int blend = startFrame.getBlendMode().getIndex();
         
-        int amountOfFrames = 1;
-        float frameOffset = 1f;
-        if (endFrame != null) {
-            int startX = (int) (startFrame.getLowerPosition().x() * Atlas.getInstance().getWidth());
-            int endX = (int) (endFrame.getHigherPosition().x() * Atlas.getInstance().getWidth());
-            
-            amountOfFrames = ((endX - startX) + 1) / startFrame.getWidth();
-            frameOffset = ((float)startFrame.getWidth()) / Atlas.getInstance().getWidth();
-        }
-        
-        float lightLevel = matrix.getChunk(0, 0).getLightLevelForRendering(x, y - 1, z);
+        int amountOfFrames = amountOfFrames(startFrame, endFrame);
         
-        stream.offset();
+        int skyLight = matrix.getSkyLightForRendering(x, y - 1, z);
+        int blockLight = matrix.getBlockLightForRendering(x, y - 1, z);
         
         stream.vertex(
-                x + 0f, y + 0f, z + 0f,
-                0f, -1f, 0f,
-                lowX, lowY,
-                blend,
-                frameOffset, amountOfFrames,
-                vertexAO(
+                x + 0, y + 0, z + 0,
+                NEGATIVE_Y,
+                0, 0,
+                tile,
+                amountOfFrames,
+                vertexAOLevel(
                         checkBlock(matrix, x - 1, y - 1, z),
                         checkBlock(matrix, x, y - 1, z - 1),
                         checkBlock(matrix, x - 1, y - 1, z - 1)
                 ),
-                lightLevel
+                skyLight, blockLight,
+                blend
         );
         stream.vertex(
-                x + 1f, y + 0f, z + 0f,
-                0f, -1f, 0f,
-                higX, lowY,
-                blend,
-                frameOffset, amountOfFrames, 
-                vertexAO(
+                x + 1, y + 0, z + 0,
+                NEGATIVE_Y,
+                1, 0,
+                tile,
+                amountOfFrames,
+                vertexAOLevel(
                         checkBlock(matrix, x + 1, y - 1, z),
                         checkBlock(matrix, x, y - 1, z - 1),
                         checkBlock(matrix, x + 1, y - 1, z - 1)
                 ),
-                lightLevel
+                skyLight, blockLight,
+                blend
         );
         stream.vertex(
-                x + 0f, y + 0f, z + 1f,
-                0f, -1f, 0f,
-                lowX, higY,
-                blend,
-                frameOffset, amountOfFrames, 
-                vertexAO(
+                x + 0, y + 0, z + 1,
+                NEGATIVE_Y,
+                0, 1,
+                tile,
+                amountOfFrames,
+                vertexAOLevel(
                         checkBlock(matrix, x - 1, y - 1, z),
                         checkBlock(matrix, x, y - 1, z + 1),
                         checkBlock(matrix, x - 1, y - 1, z + 1)
                 ),
-                lightLevel
+                skyLight, blockLight,
+                blend
         );
         stream.vertex(
-                x + 1f, y + 0f, z + 1f,
-                0f, -1f, 0f,
-                higX, higY,
-                blend,
-                frameOffset, amountOfFrames, 
-                vertexAO(
+                x + 1, y + 0, z + 1,
+                NEGATIVE_Y,
+                1, 1,
+                tile,
+                amountOfFrames,
+                vertexAOLevel(
                         checkBlock(matrix, x + 1, y - 1, z),
                         checkBlock(matrix, x, y - 1, z + 1),
                         checkBlock(matrix, x + 1, y - 1, z + 1)
                 ),
-                lightLevel
+                skyLight, blockLight,
+                blend
         );
-        
-        stream.indices(0, 1, 2, 1, 3, 2);
     }
     
     private static void writePositiveY(ChunkMatrix matrix, int x, int y, int z, VerticesStream stream, AtlasTexture startFrame, AtlasTexture endFrame) {
-        float lowX = startFrame.getLowerPosition().x();
-        float lowY = startFrame.getLowerPosition().y();
-        
-        float higX = startFrame.getHigherPosition().x();
-        float higY = startFrame.getHigherPosition().y();
+        int tile = startFrame.getTileIndex();
         
         int blend = startFrame.getBlendMode().getIndex();
         
-        int amountOfFrames = 1;
-        float frameOffset = 1f;
-        if (endFrame != null) {
-            int startX = (int) (startFrame.getLowerPosition().x() * Atlas.getInstance().getWidth());
-            int endX = (int) (endFrame.getHigherPosition().x() * Atlas.getInstance().getWidth());
-            
-            amountOfFrames = ((endX - startX) + 1) / startFrame.getWidth();
-            frameOffset = ((float)startFrame.getWidth()) / Atlas.getInstance().getWidth();
-        }
-        
-        float lightLevel = matrix.getChunk(0, 0).getLightLevelForRendering(x, y + 1, z);
+        int amountOfFrames = amountOfFrames(startFrame, endFrame);
         
-        stream.offset();
+        int skyLight = matrix.getSkyLightForRendering(x, y + 1, z);
+        int blockLight = matrix.getBlockLightForRendering(x, y + 1, z);
         
         stream.vertex(
-                x + 0f, y + 1f, z + 1f,
-                0f, 1f, 0f,
-                lowX, lowY,
-                blend,
-                frameOffset, amountOfFrames, 
-                vertexAO(
+                x + 0, y + 1, z + 1,
+                POSITIVE_Y,
+                0, 0,
+                tile,
+                amountOfFrames,
+                vertexAOLevel(
                         checkBlock(matrix, x, y + 1, z + 1),
                         checkBlock(matrix, x - 1, y + 1, z),
                         checkBlock(matrix, x - 1, y + 1, z + 1)
                 ),
-                lightLevel
+                skyLight, blockLight,
+                blend
         );
         stream.vertex(
-                x + 1f, y + 1f, z + 1f,
-                0f, 1f, 0f,
-                higX, lowY,
-                blend,
-                frameOffset, amountOfFrames, 
-                vertexAO(
+                x + 1, y + 1, z + 1,
+                POSITIVE_Y,
+                1, 0,
+                tile,
+                amountOfFrames,
+                vertexAOLevel(
                         checkBlock(matrix, x + 1, y + 1, z),
                         checkBlock(matrix, x, y + 1, z + 1),
                         checkBlock(matrix, x + 1, y + 1, z + 1)
                 ),
-                lightLevel
+                skyLight, blockLight,
+                blend
         );
         stream.vertex(
-                x + 0f, y + 1f, z + 0f,
-                0f, 1f, 0f,
-                lowX, higY,
-                blend,
-                frameOffset, amountOfFrames, 
-                vertexAO(
+                x + 0, y + 1, z + 0,
+                POSITIVE_Y,
+                0, 1,
+                tile,
+                amountOfFrames,
+                vertexAOLevel(
                         checkBlock(matrix, x - 1, y + 1, z),
                         checkBlock(matrix, x, y + 1, z - 1),
                         checkBlock(matrix, x - 1, y + 1, z - 1)
                 ),
-                lightLevel
+                skyLight, blockLight,
+                blend
         );
         stream.vertex(
-                x + 1f, y + 1f, z + 0f,
-                0f, 1f, 0f,
-                higX, higY,
-                blend,
-                frameOffset, amountOfFrames, 
-                vertexAO(
+                x + 1, y + 1, z + 0,
+                POSITIVE_Y,
+                1, 1,
+                tile,
+                amountOfFrames,
+                vertexAOLevel(
                         checkBlock(matrix, x + 1, y + 1, z),
                         checkBlock(matrix, x, y + 1, z - 1),
                         checkBlock(matrix, x + 1, y + 1, z - 1)
                 ),
-                lightLevel
+                skyLight, blockLight,
+                blend
         );
-        
-        stream.indices(0, 1, 2, 1, 3, 2);
     }
     
     private static void writeNegativeZ(ChunkMatrix matrix, int x, int y, int z, VerticesStream stream, AtlasTexture startFrame, AtlasTexture endFrame) {
-        float lowX = startFrame.getLowerPosition().x();
-        float lowY = startFrame.getLowerPosition().y();
-        
-        float higX = startFrame.getHigherPosition().x();
-        float higY = startFrame.getHigherPosition().y();
+        int tile = startFrame.getTileIndex();
         
         int blend = startFrame.getBlendMode().getIndex();
         
-        int amountOfFrames = 1;
-        float frameOffset = 1f;
-        if (endFrame != null) {
-            int startX = (int) (startFrame.getLowerPosition().x() * Atlas.getInstance().getWidth());
-            int endX = (int) (endFrame.getHigherPosition().x() * Atlas.getInstance().getWidth());
-            
-            amountOfFrames = ((endX - startX) + 1) / startFrame.getWidth();
-            frameOffset = ((float)startFrame.getWidth()) / Atlas.getInstance().getWidth();
-        }
-        
-        float lightLevel = matrix.getChunk(0, 0).getLightLevelForRendering(x, y, z - 1);
+        int amountOfFrames = amountOfFrames(startFrame, endFrame);
         
-        stream.offset();
+        int skyLight = matrix.getSkyLightForRendering(x, y, z - 1);
+        int blockLight = matrix.getBlockLightForRendering(x, y, z - 1);
         
         stream.vertex(
-                x + 1f, y + 0f, z + 0f,
-                0f, 0f, -1f,
-                lowX, lowY,
-                blend,
-                frameOffset, amountOfFrames, 
-                vertexAO(
+                x + 1, y + 0, z + 0,
+                NEGATIVE_Z,
+                0, 0,
+                tile,
+                amountOfFrames,
+                vertexAOLevel(
                         checkBlock(matrix, x + 1, y, z - 1),
                         checkBlock(matrix, x, y - 1, z - 1),
                         checkBlock(matrix, x + 1, y - 1, z - 1)
                 ),
-                lightLevel
+                skyLight, blockLight,
+                blend
         );
         stream.vertex(
-                x + 0f, y + 0f, z + 0f,
-                0f, 0f, -1f,
-                higX, lowY,
-                blend,
-                frameOffset, amountOfFrames, 
-                vertexAO(
+                x + 0, y + 0, z + 0,
+                NEGATIVE_Z,
+                1, 0,
+                tile,
+                amountOfFrames,
+                vertexAOLevel(
                         checkBlock(matrix, x - 1, y, z - 1),
                         checkBlock(matrix, x, y - 1, z - 1),
                         checkBlock(matrix, x - 1, y - 1, z - 1)
                 ),
-                lightLevel
+                skyLight, blockLight,
+                blend
         );
         stream.vertex(
-                x + 1f, y + 1f, z + 0f,
-                0f, 0f, -1f,
-                lowX, higY,
-                blend,
-                frameOffset, amountOfFrames, 
-                vertexAO(
+                x + 1, y + 1, z + 0,
+                NEGATIVE_Z,
+                0, 1,
+                tile,
+                amountOfFrames,
+                vertexAOLevel(
                         checkBlock(matrix, x + 1, y, z - 1),
                         checkBlock(matrix, x, y + 1, z - 1),
                         checkBlock(matrix, x + 1, y + 1, z - 1)
                 ),
-                lightLevel
+                skyLight, blockLight,
+                blend
         );
         stream.vertex(
-                x + 0f, y + 1f, z + 0f,
-                0f, 0f, -1f,
-                higX, higY,
-                blend,
-                frameOffset, amountOfFrames, 
-                vertexAO(
+                x + 0, y + 1, z + 0,
+                NEGATIVE_Z,
+                1, 1,
+                tile,
+                amountOfFrames,
+                vertexAOLevel(
                         checkBlock(matrix, x - 1, y, z - 1),
                         checkBlock(matrix, x, y + 1, z - 1),
                         checkBlock(matrix, x - 1, y + 1, z - 1)
                 ),
-                lightLevel
+                skyLight, blockLight,
+                blend
         );
-        
-        stream.indices(0, 1, 2, 1, 3, 2);
     }
     
     private static void writePositiveZ(ChunkMatrix matrix, int x, int y, int z, VerticesStream stream, AtlasTexture startFrame, AtlasTexture endFrame) {
-        float lowX = startFrame.getLowerPosition().x();
-        float lowY = startFrame.getLowerPosition().y();
-        
-        float higX = startFrame.getHigherPosition().x();
-        float higY = startFrame.getHigherPosition().y();
+        int tile = startFrame.getTileIndex();
         
         int blend = startFrame.getBlendMode().getIndex();
         
-        int amountOfFrames = 1;
-        float frameOffset = 1f;
-        if (endFrame != null) {
-            int startX = (int) (startFrame.getLowerPosition().x() * Atlas.getInstance().getWidth());
-            int endX = (int) (endFrame.getHigherPosition().x() * Atlas.getInstance().getWidth());
-            
-            amountOfFrames = ((endX - startX) + 1) / startFrame.getWidth();
-            frameOffset = ((float)startFrame.getWidth()) / Atlas.getInstance().getWidth();
-        }
-        
-        float lightLevel = matrix.getChunk(0, 0).getLightLevelForRendering(x, y, z + 1);
+        int amountOfFrames = amountOfFrames(startFrame, endFrame);
         
-        stream.offset();
+        int skyLight = matrix.getSkyLightForRendering(x, y, z + 1);
+        int blockLight = matrix.getBlockLightForRendering(x, y, z + 1);
         
         stream.vertex(
-                x + 0f, y + 0f, z + 1f,
-                0f, 0f, 1f,
-                lowX, lowY,
-                blend,
-                frameOffset, amountOfFrames, 
-                vertexAO(
+                x + 0, y + 0, z + 1,
+                POSITIVE_Z,
+                0, 0,
+                tile,
+                amountOfFrames,
+                vertexAOLevel(
                         checkBlock(matrix, x - 1, y, z + 1),
                         checkBlock(matrix, x, y - 1, z + 1),
                         checkBlock(matrix, x - 1, y - 1, z + 1)
                 ),
-                lightLevel
+                skyLight, blockLight,
+                blend
         );
         stream.vertex(
-                x + 1f, y + 0f, z + 1f,
-                0f, 0f, 1f,
-                higX, lowY,
-                blend,
-                frameOffset, amountOfFrames, 
-                vertexAO(
+                x + 1, y + 0, z + 1,
+                POSITIVE_Z,
+                1, 0,
+                tile,
+                amountOfFrames,
+                vertexAOLevel(
                         checkBlock(matrix, x + 1, y, z + 1),
                         checkBlock(matrix, x, y - 1, z + 1),
                         checkBlock(matrix, x + 1, y - 1, z + 1)
                 ),
-                lightLevel
+                skyLight, blockLight,
+                blend
         );
         stream.vertex(
-                x + 0f, y + 1f, z + 1f,
-                0f, 0f, 1f,
-                lowX, higY,
-                blend,
-                frameOffset, amountOfFrames, 
-                vertexAO(
+                x + 0, y + 1, z + 1,
+                POSITIVE_Z,
+                0, 1,
+                tile,
+                amountOfFrames,
+                vertexAOLevel(
                         checkBlock(matrix, x - 1, y, z + 1),
                         checkBlock(matrix, x, y + 1, z + 1),
                         checkBlock(matrix, x - 1, y + 1, z + 1)
                 ),
-                lightLevel
+                skyLight, blockLight,
+                blend
         );
         stream.vertex(
-                x + 1f, y + 1f, z + 1f,
-                0f, 0f, 1f,
-                higX, higY,
-                blend,
-                frameOffset, amountOfFrames, 
-                vertexAO(
+                x + 1, y + 1, z + 1,
+                POSITIVE_Z,
+                1, 1,
+                tile,
+                amountOfFrames,
+                vertexAOLevel(
                         checkBlock(matrix, x + 1, y, z + 1),
                         checkBlock(matrix, x, y + 1, z + 1),
                         checkBlock(matrix, x + 1, y + 1, z + 1)
                 ),
-                lightLevel
+                skyLight, blockLight,
+                blend
         );
-        
-        stream.indices(0, 1, 2, 1, 3, 2);
     }
     
     private BlockVertices() {
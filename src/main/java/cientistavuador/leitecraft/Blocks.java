@@ -1,9 +1,7 @@
 package cientistavuador.leitecraft;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  *
@@ -15,10 +13,51 @@ public class Blocks {
         
     }
     
-    private static final Map<Integer, Block> blockIds = new HashMap<>();
+    public static final int MAX_BLOCKS = 256;
+    public static final int MAX_TILES = 64;
+    
+    public static final int SOLID = 1 << 0;
+    public static final int TRANSPARENT = 1 << 1;
+    public static final int ALPHA_ENABLED = 1 << 2;
+    public static final int COLLISION = 1 << 3;
+    public static final int LIQUID = 1 << 4;
+    public static final int GREEDY_MESHABLE = 1 << 5;
+    
+    private static final Block[] blockIds = new Block[MAX_BLOCKS];
+    private static final int[] properties = new int[MAX_BLOCKS];
+    private static final int[] lightEmission = new int[MAX_BLOCKS];
     
     private static void register(Block block) {
-        blockIds.put(block.getId(), block);
+        int id = block.getId();
+        if (id >= MAX_BLOCKS) {
+            throw new RuntimeException("Invalid ID");
+        }
+        if (blockIds[id] != null) {
+            throw new RuntimeException("ID "+id+" already registered");
+        }
+        blockIds[id] = block;
+        
+        int flags = 0;
+        if (!block.isTransparent()) {
+            flags |= SOLID;
+        }
+        if (block.isTransparent()) {
+            flags |= TRANSPARENT;
+        }
+        if (block.isAlphaEnabled()) {
+            flags |= ALPHA_ENABLED;
+        }
+        if (block.hasCollision()) {
+            flags |= COLLISION;
+        }
+        if (block.isLiquid()) {
+            flags |= LIQUID;
+        }
+        if (block.isGreedyMeshable()) {
+            flags |= GREEDY_MESHABLE;
+        }
+        properties[id] = flags;
+        lightEmission[id] = block.getLightEmission();
     }
     
     private static AtlasTexture texture(String name) {
@@ -92,6 +131,7 @@ public class Blocks {
     }
     
     private static final Block[] blocks;
+    private static final AtlasTexture[] tiles;
     
     static {
         register(DIRT);
@@ -114,21 +154,85 @@ public class Blocks {
         register(LANTERN);
         
         List<Block> blockList = new ArrayList<>();
-        for (Map.Entry<Integer, Block> e:blockIds.entrySet()) {
-            blockList.add(e.getValue());
+        for (Block b:blockIds) {
+            if (b != null) {
+                blockList.add(b);
+            }
         }
         
         blocks = blockList.toArray(Block[]::new);
+        
+        List<AtlasTexture> tileList = new ArrayList<>();
+        for (Block b:blocks) {
+            for (int side = 0; side < 6; side++) {
+                AtlasTexture texture = b.getTexture(side);
+                if (texture.getTileIndex() == -1) {
+                    texture.setTileIndex(tileList.size());
+                    tileList.add(texture);
+                }
+            }
+        }
+        if (tileList.size() > MAX_TILES) {
+            throw new RuntimeException("Too many block textures: "+tileList.size()+" > "+MAX_TILES);
+        }
+        
+        tiles = tileList.toArray(AtlasTexture[]::new);
     }
     
     public static Block getBlock(int id) {
-        return blockIds.get(id);
+        return blockIds[id];
+    }
+    
+    public static int getProperties(int id) {
+        return properties[id];
+    }
+    
+    public static boolean isSolid(int id) {
+        return (properties[id] & SOLID) != 0;
+    }
+    
+    public static boolean isTransparent(int id) {
+        return (properties[id] & TRANSPARENT) != 0;
+    }
+    
+    public static boolean isAlphaEnabled(int id) {
+        return (properties[id] & ALPHA_ENABLED) != 0;
+    }
+    
+    public static boolean hasCollision(int id) {
+        return (properties[id] & COLLISION) != 0;
+    }
+    
+    public static boolean isLiquid(int id) {
+        return (properties[id] & LIQUID) != 0;
+    }
+    
+    public static boolean isGreedyMeshable(int id) {
+        return (properties[id] & GREEDY_MESHABLE) != 0;
+    }
+    
+    public static int getLightEmission(int id) {
+        return lightEmission[id];
+    }
+    
+    public static boolean affectsNeighborFaces(int oldId, int newId) {
+        if (oldId == newId) {
+            return false;
+        }
+        if (oldId == 0 || newId == 0 || isTransparent(oldId) || isTransparent(newId)) {
+            return true;
+        }
+        return isSolid(oldId) != isSolid(newId);
     }
     
     public static Block[] getBlocks() {
         return blocks;
     }
     
+    public static AtlasTexture[] getTiles() {
+        return tiles;
+    }
+    
     private Blocks() {
         
     }
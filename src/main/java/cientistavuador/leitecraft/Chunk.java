@@ -8,33 +8,78 @@ import java.util.Arrays;
  */
 public class Chunk {
     
-    public static final int MAX_LIGHT_LEVEL = 16;
+    public static final int MAX_LIGHT_LEVEL = 15;
+    public static final int FULL_SKY_LIGHT = MAX_LIGHT_LEVEL << 4;
+    
+    public static int packLight(int skyLight, int blockLight) {
+        return (skyLight << 4) | blockLight;
+    }
+    
+    public static int skyLight(int light) {
+        return (light >> 4) & 0xF;
+    }
+    
+    public static int blockLight(int light) {
+        return light & 0xF;
+    }
 
     public static final int CHUNK_SIZE = 16;
     public static final int CHUNK_HEIGHT = 128;
+    public static final int SECTIONS = CHUNK_HEIGHT / ChunkSection.SECTION_SIZE;
+    
+    private final ChunkSection[] sections = new ChunkSection[SECTIONS];
+    private final byte[][] light = new byte[SECTIONS][];
+    private final boolean[] lightShared = new boolean[SECTIONS];
     
-    private final byte[] blocks = new byte[CHUNK_SIZE * CHUNK_SIZE * CHUNK_HEIGHT];
-    private final byte[] blocksData = new byte[CHUNK_SIZE * CHUNK_SIZE * CHUNK_HEIGHT];
-    private final byte[] lighting = new byte[(CHUNK_SIZE + 2) * (CHUNK_SIZE + 2) * (CHUNK_HEIGHT + 2)];
+    private final byte[] surfaceHeightmap;
+    private final byte[] solidHeightmap;
     
     private final int chunkX;
     private final int chunkZ;
     
+    private final boolean snapshot;
+    private int version = 0;
+    
     private RenderableChunk renderableChunk = null;
     
     public Chunk(int chunkX, int chunkZ) {
         this.chunkX = chunkX;
         this.chunkZ = chunkZ;
-
-        Arrays.fill(this.lighting, (byte) 32);
+        this.snapshot = false;
+        this.surfaceHeightmap = new byte[CHUNK_SIZE * CHUNK_SIZE];
+        this.solidHeightmap = new byte[CHUNK_SIZE * CHUNK_SIZE];
     }
     
-    public Chunk(Chunk toCopy) {
-        this.chunkX = toCopy.chunkX;
-        this.chunkZ = toCopy.chunkZ;
-        System.arraycopy(toCopy.blocks, 0, this.blocks, 0, this.blocks.length);
-        System.arraycopy(toCopy.blocksData, 0, this.blocksData, 0, this.blocksData.length);
-        System.arraycopy(toCopy.lighting, 0, this.lighting, 0, this.lighting.length);
+    private Chunk(Chunk source) {
+        this.chunkX = source.chunkX;
+        this.chunkZ = source.chunkZ;
+        this.version = source.version;
+        this.snapshot = true;
+        this.surfaceHeightmap = source.surfaceHeightmap.clone();
+        this.solidHeightmap = source.solidHeightmap.clone();
+        for (int i = 0; i < SECTIONS; i++) {
+            ChunkSection section = source.sections[i];
+            if (section != null) {
+                section.markShared();
+                this.sections[i] = section;
+            }
+            if (source.light[i] != null) {
+                source.lightShared[i] = true;
+                this.light[i] = source.light[i];
+            }
+        }
+    }
+    
+    public Chunk snapshot() {
+        return new Chunk(this);
+    }
+    
+    public boolean isSnapshot() {
+        return snapshot;
+    }
+    
+    public int getVersion() {
+        return version;
     }
 
     public int getChunkX() {
@@ -45,60 +90,232 @@ public class Chunk {
         return chunkZ;
     }
 
-    public Block getBlock(int x, int y, int z) {
+    public ChunkSection getSection(int sectionY) {
+        return this.sections[sectionY];
+    }
+    
+    private ChunkSection writableSection(int sectionY, boolean create) {
+        if (this.snapshot) {
+            throw new RuntimeException("Chunk snapshots are immutable");
+        }
+        ChunkSection section = this.sections[sectionY];
+        if (section == null) {
+            if (create) {
+                section = new ChunkSection(0);
+                this.sections[sectionY] = section;
+            }
+        } else if (section.isShared()) {
+            section = new ChunkSection(section);
+            this.sections[sectionY] = section;
+        }
+        return section;
+    }
+    
+    public int getHighestNonEmptyY() {
+        for (int i = SECTIONS - 1; i >= 0; i--) {
+            if (this.sections[i] != null) {
+                return (i + 1) * ChunkSection.SECTION_SIZE;
+            }
+        }
+        return 0;
+    }
+    
+    public int getSurfaceHeight(int x, int z) {
+        return this.surfaceHeightmap[x + (z * CHUNK_SIZE)] & 0xFF;
+    }
+    
+    public int getSolidHeight(int x, int z) {
+        return this.solidHeightmap[x + (z * CHUNK_SIZE)] & 0xFF;
+    }
+    
+    private void updateHeightmaps(int x, int y, int z, int id) {
+        int index = x + (z * CHUNK_SIZE);
+        
+        int surface = this.surfaceHeightmap[index] & 0xFF;
+        if (id != 0 && y >= surface) {
+            this.surfaceHeightmap[index] = (byte) (y + 1);
+        } else if (id == 0 && y == surface - 1) {
+            int height = y;
+            while (height > 0 && getBlockId(x, height - 1, z) == 0) {
+                height--;
+            }
+            this.surfaceHeightmap[index] = (byte) height;
+        }
+        
+        int solid = this.solidHeightmap[index] & 0xFF;
+        boolean isSolid = Blocks.isSolid(id);
+        if (isSolid && y >= solid) {
+            this.solidHeightmap[index] = (byte) (y + 1);
+        } else if (!isSolid && y == solid - 1) {
+            int height = y;
+            while (height > 0 && !Blocks.isSolid(getBlockId(x, height - 1, z))) {
+                height--;
+            }
+            this.solidHeightmap[index] = (byte) height;
+        }
+    }
+    
+    public int getBlockId(int x, int y, int z) {
         if (y < 0 || y >= Chunk.CHUNK_HEIGHT) {
-            return Blocks.AIR;
+            return 0;
+        }
+        ChunkSection section = this.sections[y >> 4];
+        if (section == null) {
+            return 0;
+        }
+        return section.getBlockId(x, y & 15, z);
+    }
+    
+    public void copyBlockIds(int sectionY, byte[] ids) {
+        ChunkSection section = this.sections[sectionY];
+        if (section == null) {
+            Arrays.fill(ids, 0, ChunkSection.SECTION_VOLUME, (byte) 0);
+            return;
         }
-        return Blocks.getBlock(
-                ((int) this.blocks[x + (y * CHUNK_SIZE * CHUNK_SIZE) + (z * CHUNK_SIZE)]) & 0xFF
-        );
+        section.copyBlockIds(ids);
+    }
+    
+    public Block getBlock(int x, int y, int z) {
+        return Blocks.getBlock(getBlockId(x, y, z));
     }
     
     public void setBlock(int x, int y, int z, Block b) {
         int id = 0;
-        if (b != Blocks.AIR) {
-            id = b.getId();
-        }
-        this.blocks[x + (y * CHUNK_SIZE * CHUNK_SIZE) + (z * CHUNK_SIZE)] = (byte) id;
         int data = 0;
         if (b != Blocks.AIR) {
+            id = b.getId();
             data = b.getDefaultData();
         }
-        setData(x, y, z, data);
+        int oldId = getBlockId(x, y, z);
+        if (oldId == id && getData(x, y, z) == data) {
+            return;
+        }
+        int sectionY = y >> 4;
+        ChunkSection section = writableSection(sectionY, id != 0);
+        this.version++;
+        if (section != null) {
+            section.setBlockId(x, y & 15, z, id);
+            section.setData(x, y & 15, z, data);
+            if (section.isEmpty()) {
+                this.sections[sectionY] = null;
+            }
+        }
+        updateHeightmaps(x, y, z, id);
         if (this.renderableChunk != null) {
-            this.renderableChunk.getWorldCamera().signalRegenerateMesh(this.chunkX, this.chunkZ);
+            this.renderableChunk.getWorldCamera().signalRegenerateBlock(this.chunkX, this.chunkZ, x, y, z,
+                    Blocks.affectsNeighborFaces(oldId, id)
+            );
         }
     }
     
     public int getData(int x, int y, int z) {
-        return this.blocksData[x + (y * CHUNK_SIZE * CHUNK_SIZE) + (z * CHUNK_SIZE)] & 0xFF;
+        ChunkSection section = this.sections[y >> 4];
+        if (section == null) {
+            return 0;
+        }
+        return section.getData(x, y & 15, z);
     }
     
     public void setData(int x, int y, int z, int data) {
-        this.blocksData[x + (y * CHUNK_SIZE * CHUNK_SIZE) + (z * CHUNK_SIZE)] = (byte) data;
+        ChunkSection section = writableSection(y >> 4, data != 0);
+        this.version++;
+        if (section != null) {
+            section.setData(x, y & 15, z, data);
+        }
     }
     
-    public int getLightLevel(int x, int y, int z) {
-        x += 1;
-        y += 1;
-        z += 1;
-        return this.lighting[x + (y * (CHUNK_SIZE + 2) * (CHUNK_SIZE + 2)) + (z * (CHUNK_SIZE + 2))];
+    public void optimize() {
+        if (this.snapshot) {
+            throw new RuntimeException("Chunk snapshots are immutable");
+        }
+        for (int i = 0; i < SECTIONS; i++) {
+            ChunkSection section = this.sections[i];
+            if (section == null) {
+                continue;
+            }
+            if (section.isEmpty()) {
+                this.sections[i] = null;
+                continue;
+            }
+            section.optimize();
+        }
     }
-
-    public void setLightLevel(int x, int y, int z, int lightLevel) {
-        x += 1;
-        y += 1;
-        z += 1;
-        this.lighting[x + (y * (CHUNK_SIZE + 2) * (CHUNK_SIZE + 2)) + (z * (CHUNK_SIZE + 2))] = (byte) lightLevel;
+    
+    public int getLight(int x, int y, int z) {
+        if (y < 0 || y >= CHUNK_HEIGHT) {
+            return FULL_SKY_LIGHT;
+        }
+        byte[] section = this.light[y >> 4];
+        if (section == null) {
+            return FULL_SKY_LIGHT;
+        }
+        return section[x + ((y & 15) * CHUNK_SIZE * CHUNK_SIZE) + (z * CHUNK_SIZE)] & 0xFF;
     }
 
-    public float getLightLevelForRendering(int x, int y, int z) {
-        float norm = ((float) getLightLevel(x, y, z)) / Chunk.MAX_LIGHT_LEVEL;
-        return norm * norm;
+    public void setLight(int x, int y, int z, int light) {
+        if (this.snapshot) {
+            throw new RuntimeException("Chunk snapshots are immutable");
+        }
+        int sectionY = y >> 4;
+        byte[] section = this.light[sectionY];
+        if (section == null) {
+            if (light == FULL_SKY_LIGHT) {
+                return;
+            }
+            section = new byte[ChunkSection.SECTION_VOLUME];
+            Arrays.fill(section, (byte) FULL_SKY_LIGHT);
+            this.light[sectionY] = section;
+            this.lightShared[sectionY] = false;
+        } else if (this.lightShared[sectionY]) {
+            section = section.clone();
+            this.light[sectionY] = section;
+            this.lightShared[sectionY] = false;
+        }
+        section[x + ((y & 15) * CHUNK_SIZE * CHUNK_SIZE) + (z * CHUNK_SIZE)] = (byte) light;
+    }
+    
+    public int getSkyLight(int x, int y, int z) {
+        return skyLight(getLight(x, y, z));
+    }
+    
+    public int getBlockLight(int x, int y, int z) {
+        return blockLight(getLight(x, y, z));
+    }
+    
+    public void setSkyLight(int x, int y, int z, int skyLight) {
+        setLight(x, y, z, packLight(skyLight, getBlockLight(x, y, z)));
     }
     
-    public void copyLightingFrom(Chunk other) {
-        System.arraycopy(other.lighting, 0, this.lighting, 0, other.lighting.length);
+    public void setBlockLight(int x, int y, int z, int blockLight) {
+        setLight(x, y, z, packLight(getSkyLight(x, y, z), blockLight));
+    }
+    
+    public void setLighting(byte[][] sections) {
+        if (this.snapshot) {
+            throw new RuntimeException("Chunk snapshots are immutable");
+        }
+        if (sections.length != SECTIONS) {
+            throw new RuntimeException("Invalid amount of light sections: " + sections.length);
+        }
+        for (int i = 0; i < SECTIONS; i++) {
+            this.light[i] = sections[i];
+            this.lightShared[i] = false;
+        }
+    }
+    
+    public int getMemoryUsage() {
+        int usage = this.surfaceHeightmap.length + this.solidHeightmap.length;
+        for (byte[] section:this.light) {
+            if (section != null) {
+                usage += section.length;
+            }
+        }
+        for (ChunkSection section:this.sections) {
+            if (section != null) {
+                usage += section.getMemoryUsage();
+            }
+        }
+        return usage;
     }
 
     public RenderableChunk getRenderableChunk() {
@@ -0,0 +1,168 @@
+package cientistavuador.leitecraft;
+
+import cientistavuador.leitecraft.ArenaAllocator.Allocation;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL31.GL_COPY_READ_BUFFER;
+import static org.lwjgl.opengl.GL31.GL_COPY_WRITE_BUFFER;
+import static org.lwjgl.opengl.GL31.glCopyBufferSubData;
+import org.lwjgl.system.MemoryUtil;
+
+/**
+ *
+ * @author Cien
+ */
+public class ChunkArena {
+
+    //vertices of all chunk meshes, one unit is one quad
+    public static final ChunkArena VERTICES = new ChunkArena(
+            QuadIndexBuffer.VERTICES_PER_QUAD * VerticesStream.VERTEX_BYTES,
+            64 * 1024
+    );
+
+    //sorted alpha indices of all chunks, one unit is the six 32 bit indices of one quad
+    public static final ChunkArena INDICES = new ChunkArena(
+            QuadIndexBuffer.INDICES_PER_QUAD * Integer.BYTES,
+            16 * 1024
+    );
+
+    private static void copy(int fromBuffer, long fromOffset, int toBuffer, long toOffset, long bytes) {
+        if (Main.isSupported(3, 1)) {
+            glBindBuffer(GL_COPY_READ_BUFFER, fromBuffer);
+            glBindBuffer(GL_COPY_WRITE_BUFFER, toBuffer);
+            glCopyBufferSubData(GL_COPY_READ_BUFFER, GL_COPY_WRITE_BUFFER, fromOffset, toOffset, bytes);
+            glBindBuffer(GL_COPY_READ_BUFFER, 0);
+            glBindBuffer(GL_COPY_WRITE_BUFFER, 0);
+            return;
+        }
+        ByteBuffer data = MemoryUtil.memAlloc((int) bytes);
+        try {
+            glBindBuffer(GL_ARRAY_BUFFER, fromBuffer);
+            glGetBufferSubData(GL_ARRAY_BUFFER, fromOffset, data);
+            glBindBuffer(GL_ARRAY_BUFFER, toBuffer);
+            glBufferSubData(GL_ARRAY_BUFFER, toOffset, data);
+            glBindBuffer(GL_ARRAY_BUFFER, 0);
+        } finally {
+            MemoryUtil.memFree(data);
+        }
+    }
+
+    private final int unitBytes;
+    private final ArenaAllocator allocator;
+    private int buffer = 0;
+    private long relocations = 0;
+
+    private ChunkArena(int unitBytes, int initialUnits) {
+        this.unitBytes = unitBytes;
+        this.allocator = new ArenaAllocator(initialUnits);
+    }
+
+    private long bytes(int units) {
+        return ((long) units) * this.unitBytes;
+    }
+
+    private int createBuffer(int units) {
+        int newBuffer = glGenBuffers();
+        glBindBuffer(GL_ARRAY_BUFFER, newBuffer);
+        glBufferData(GL_ARRAY_BUFFER, bytes(units), GL_DYNAMIC_DRAW);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        return newBuffer;
+    }
+
+    private void relocate(int newCapacity) {
+        int newBuffer = createBuffer(newCapacity);
+        for (ArenaAllocator.Move move : this.allocator.relocate(newCapacity)) {
+            copy(this.buffer, bytes(move.getFrom()), newBuffer, bytes(move.getTo()), bytes(move.getSize()));
+        }
+        glDeleteBuffers(this.buffer);
+        this.buffer = newBuffer;
+        this.relocations++;
+    }
+
+    public int getBuffer() {
+        return buffer;
+    }
+
+    public int getUnitBytes() {
+        return unitBytes;
+    }
+
+    public Allocation allocate(int units) {
+        if (this.buffer == 0) {
+            this.buffer = createBuffer(this.allocator.getCapacity());
+        }
+
+        Allocation allocation = this.allocator.allocate(units);
+        if (allocation != null) {
+            return allocation;
+        }
+
+        //compact, and grow if less than a quarter would be left free afterwards
+        int needed = this.allocator.getUsed() + units;
+        int newCapacity = this.allocator.getCapacity();
+        while (newCapacity - needed < newCapacity / 4) {
+            newCapacity *= 2;
+        }
+        relocate(newCapacity);
+
+        return this.allocator.allocate(units);
+    }
+
+    public void free(Allocation allocation) {
+        this.allocator.free(allocation);
+    }
+
+    public void upload(Allocation allocation, long byteOffset, long address, long bytes) {
+        glBindBuffer(GL_ARRAY_BUFFER, this.buffer);
+        nglBufferSubData(GL_ARRAY_BUFFER, bytes(allocation.getOffset()) + byteOffset, bytes, address);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+    }
+
+    public void upload(Allocation allocation, long byteOffset, int[] data) {
+        glBindBuffer(GL_ARRAY_BUFFER, this.buffer);
+        glBufferSubData(GL_ARRAY_BUFFER, bytes(allocation.getOffset()) + byteOffset, data);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+    }
+
+    public void upload(Allocation allocation, long byteOffset, IntBuffer data) {
+        glBindBuffer(GL_ARRAY_BUFFER, this.buffer);
+        glBufferSubData(GL_ARRAY_BUFFER, bytes(allocation.getOffset()) + byteOffset, data);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+    }
+
+    public void copy(Allocation from, long fromByteOffset, Allocation to, long toByteOffset, long bytes) {
+        copy(this.buffer, bytes(from.getOffset()) + fromByteOffset, this.buffer, bytes(to.getOffset()) + toByteOffset, bytes);
+    }
+
+    public void download(Allocation allocation, long byteOffset, int[] data) {
+        glBindBuffer(GL_ARRAY_BUFFER, this.buffer);
+        glGetBufferSubData(GL_ARRAY_BUFFER, bytes(allocation.getOffset()) + byteOffset, data);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+    }
+
+    public long getCapacityBytes() {
+        return bytes(this.allocator.getCapacity());
+    }
+
+    public long getUsedBytes() {
+        return bytes(this.allocator.getUsed());
+    }
+
+    public int getAllocations() {
+        return this.allocator.getAllocations();
+    }
+
+    public int getFreeBlocks() {
+        return this.allocator.getFreeBlocks();
+    }
+
+    public float getFragmentation() {
+        return this.allocator.getFragmentation();
+    }
+
+    public long getRelocations() {
+        return relocations;
+    }
+
+}
@@ -142,17 +142,9 @@ public class ChunkGenerator {
     private void generateCaves() {
         for (int x = 0; x < Chunk.CHUNK_SIZE; x++) {
             for (int z = 0; z < Chunk.CHUNK_SIZE; z++) {
-                int terrainHeight = 0;
-                for (int y = Chunk.CHUNK_HEIGHT - 1; y >= 0; y--) {
-                    Block blockAt = this.chunk.getBlock(x, y, z);
-                    if (blockAt == Blocks.AIR || blockAt == Blocks.WATER) {
-                        continue;
-                    }
-                    terrainHeight = y;
-                    break;
-                }
+                int terrainHeight = this.chunk.getSolidHeight(x, z) - 1;
                 
-                if (terrainHeight == 0) {
+                if (terrainHeight <= 0) {
                     continue;
                 }
                 
@@ -191,16 +183,9 @@ public class ChunkGenerator {
     private void exposedDirtToGrass() {
         for (int x = 0; x < Chunk.CHUNK_SIZE; x++) {
             for (int z = 0; z < Chunk.CHUNK_SIZE; z++) {
-                for (int y = Chunk.CHUNK_HEIGHT - 1; y >= 0; y--) {
-                    Block blockAt = this.chunk.getBlock(x, y, z);
-                    if (blockAt == Blocks.AIR) {
-                        continue;
-                    }
-                    if (blockAt != Blocks.DIRT) {
-                        break;
-                    }
+                int y = this.chunk.getSurfaceHeight(x, z) - 1;
+                if (y >= 0 && this.chunk.getBlock(x, y, z) == Blocks.DIRT) {
                     this.chunk.setBlock(x, y, z, Blocks.GRASS);
-                    break;
                 }
             }
         }
@@ -213,12 +198,8 @@ public class ChunkGenerator {
                 double globalBlockZ = z + (this.chunk.getChunkZ() * Chunk.CHUNK_SIZE);
 
                 int validGrassY = -1;
-                for (int y = Chunk.CHUNK_HEIGHT - 1; y >= 0; y--) {
-                    Block blockAt = this.chunk.getBlock(x, y, z);
-                    if (blockAt == Blocks.AIR) {
-                        continue;
-                    }
-                    if (blockAt != Blocks.GRASS) {
+                for (int y = this.chunk.getSurfaceHeight(x, z) - 1; y >= 0; y--) {
+                    if (this.chunk.getBlock(x, y, z) != Blocks.GRASS) {
                         break;
                     }
                     validGrassY = y;
@@ -338,6 +319,7 @@ public class ChunkGenerator {
         generateCaves();
         exposedDirtToGrass();
         generateTrees();
+        this.chunk.optimize();
     }
 
 }
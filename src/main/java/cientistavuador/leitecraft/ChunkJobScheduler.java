@@ -0,0 +1,180 @@
+package cientistavuador.leitecraft;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ *
+ * @author Cien
+ */
+public class ChunkJobScheduler {
+
+    //cosine of the half angle of the cone considered in front of the camera
+    public static final float VIEW_CONE_COS = 0.25f;
+    public static final long BEHIND_PENALTY = 4;
+    //queued jobs are only reprioritized when the camera changes chunk or turns more than this
+    public static final float REPRIORITIZE_COS = 0.85f;
+
+    private static class Job<T> extends FutureTask<T> {
+
+        private final int chunkX;
+        private final int chunkZ;
+        private final long sequence;
+        private long priority = 0;
+
+        public Job(int chunkX, int chunkZ, long sequence, Callable<T> callable) {
+            super(callable);
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+            this.sequence = sequence;
+        }
+    }
+
+    private final Object lock = new Object();
+    private final PriorityQueue<Job<?>> jobs = new PriorityQueue<>(
+            Comparator.<Job<?>>comparingLong(job -> job.priority).thenComparingLong(job -> job.sequence)
+    );
+    private long sequence = 0;
+    private long droppedJobs = 0;
+
+    private int cameraChunkX = 0;
+    private int cameraChunkZ = 0;
+    private float frontX = 0f;
+    private float frontZ = 0f;
+    private int keepDistance = Integer.MAX_VALUE;
+
+    public ChunkJobScheduler(int threads, String name) {
+        for (int i = 0; i < threads; i++) {
+            Thread t = new Thread(this::work, name);
+            t.setDaemon(true);
+            t.start();
+        }
+    }
+
+    public <T> Future<T> submit(int chunkX, int chunkZ, Callable<T> callable) {
+        synchronized (this.lock) {
+            Job<T> job = new Job<>(chunkX, chunkZ, this.sequence++, callable);
+            job.priority = priority(job);
+            this.jobs.add(job);
+            this.lock.notify();
+            return job;
+        }
+    }
+
+    public Future<?> submit(int chunkX, int chunkZ, Runnable runnable) {
+        return submit(chunkX, chunkZ, () -> {
+            runnable.run();
+            return null;
+        });
+    }
+
+    public void setCamera(int cameraChunkX, int cameraChunkZ, float frontX, float frontZ, int keepDistance) {
+        synchronized (this.lock) {
+            boolean moved = this.cameraChunkX != cameraChunkX || this.cameraChunkZ != cameraChunkZ || this.keepDistance != keepDistance;
+
+            float length = (float) Math.sqrt((frontX * frontX) + (frontZ * frontZ));
+            if (length > 0.001f) {
+                frontX /= length;
+                frontZ /= length;
+            } else {
+                frontX = 0f;
+                frontZ = 0f;
+            }
+            boolean turned = (frontX != this.frontX || frontZ != this.frontZ)
+                    && ((frontX * this.frontX) + (frontZ * this.frontZ)) < REPRIORITIZE_COS;
+
+            if (moved || turned) {
+                this.cameraChunkX = cameraChunkX;
+                this.cameraChunkZ = cameraChunkZ;
+                this.keepDistance = keepDistance;
+                this.frontX = frontX;
+                this.frontZ = frontZ;
+                reprioritize();
+            }
+        }
+    }
+
+    public int getQueuedJobs() {
+        synchronized (this.lock) {
+            int queued = 0;
+            for (Job<?> job : this.jobs) {
+                if (!job.isDone()) {
+                    queued++;
+                }
+            }
+            return queued;
+        }
+    }
+
+    public long getDroppedJobs() {
+        synchronized (this.lock) {
+            return this.droppedJobs;
+        }
+    }
+
+    private void reprioritize() {
+        List<Job<?>> kept = new ArrayList<>(this.jobs.size());
+        for (Job<?> job : this.jobs) {
+            if (job.isDone()) {
+                continue;
+            }
+            int distance = Math.max(Math.abs(job.chunkX - this.cameraChunkX), Math.abs(job.chunkZ - this.cameraChunkZ));
+            if (distance > this.keepDistance) {
+                job.cancel(false);
+                this.droppedJobs++;
+                continue;
+            }
+            job.priority = priority(job);
+            kept.add(job);
+        }
+        this.jobs.clear();
+        this.jobs.addAll(kept);
+    }
+
+    private long priority(Job<?> job) {
+        int x = job.chunkX - this.cameraChunkX;
+        int z = job.chunkZ - this.cameraChunkZ;
+        long distance = (x * x) + (z * z);
+        if (distance <= 2) {
+            return distance;
+        }
+        float cos = ((x * this.frontX) + (z * this.frontZ)) / ((float) Math.sqrt(distance));
+        if ((this.frontX != 0f || this.frontZ != 0f) && cos < VIEW_CONE_COS) {
+            return distance * BEHIND_PENALTY;
+        }
+        return distance;
+    }
+
+    private Job<?> take() throws InterruptedException {
+        synchronized (this.lock) {
+            while (true) {
+                Job<?> job = this.jobs.poll();
+                if (job == null) {
+                    this.lock.wait();
+                    continue;
+                }
+                if (!job.isDone()) {
+                    return job;
+                }
+            }
+        }
+    }
+
+    private void work() {
+        while (true) {
+            Job<?> job;
+            try {
+                job = take();
+            } catch (InterruptedException ex) {
+                return;
+            }
+            job.run();
+        }
+    }
+
+}
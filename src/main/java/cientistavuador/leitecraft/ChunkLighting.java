@@ -1,176 +1,198 @@
 package cientistavuador.leitecraft;
 
+import java.util.Arrays;
+
 /**
  *
  * @author Cien
  */
 public class ChunkLighting {
 
-    public static void computeLighting(ChunkMatrix matrix) {
-        new ChunkLighting(matrix).compute();
+    public static byte[][] computeLighting(Chunk chunk) {
+        return new ChunkLighting(chunk).compute();
     }
 
-    public static final int SIZE = Chunk.CHUNK_SIZE * 3;
+    public static final int SIZE = Chunk.CHUNK_SIZE;
     public static final int HEIGHT = Chunk.CHUNK_HEIGHT;
 
-    private final ChunkMatrix matrix;
-    
-    private final boolean[] noWorkDoneCache = new boolean[HEIGHT];
-    private final boolean[] solidCache = new boolean[SIZE * SIZE * HEIGHT];
-    
-    private byte[] lightingRead = new byte[SIZE * SIZE * HEIGHT];
-    private byte[] lightingWrite = new byte[SIZE * SIZE * HEIGHT];
-    
-    private ChunkLighting(ChunkMatrix matrix) {
-        this.matrix = matrix;
-    }
+    private static final int LAYER = SIZE * SIZE;
+    private static final int VOLUME = SIZE * SIZE * HEIGHT;
+
+    private final Chunk chunk;
+
+    private final boolean[] solidCache = new boolean[VOLUME];
+    private final byte[] skyLighting = new byte[VOLUME];
+    private final byte[] blockLighting = new byte[VOLUME];
+    private final byte[] sectionBlocks = new byte[ChunkSection.SECTION_VOLUME];
+
+    private final int[][] queues = new int[Chunk.MAX_LIGHT_LEVEL + 1][];
+    private final int[] queuesLength = new int[Chunk.MAX_LIGHT_LEVEL + 1];
+
+    private int emptyLayersStart = HEIGHT;
 
-    private void flipBuffers() {
-        byte[] a = this.lightingWrite;
-        byte[] b = this.lightingRead;
-        this.lightingWrite = b;
-        this.lightingRead = a;
+    private ChunkLighting(Chunk chunk) {
+        this.chunk = chunk;
     }
 
-    private int getLightLevel(int x, int y, int z) {
-        if (y < 0 || y >= HEIGHT) {
-            return Chunk.MAX_LIGHT_LEVEL;
-        }
-        x += Chunk.CHUNK_SIZE;
-        z += Chunk.CHUNK_SIZE;
-        if (x < 0 || x >= SIZE) {
-            return 0;
+    private void prepareLightingAndSolidCache() {
+        int highestY = this.chunk.getHighestNonEmptyY();
+        this.emptyLayersStart = highestY;
+
+        for (int z = 0; z < SIZE; z++) {
+            for (int x = 0; x < SIZE; x++) {
+                for (int y = HEIGHT - 1; y >= this.chunk.getSolidHeight(x, z); y--) {
+                    this.skyLighting[x + (y * LAYER) + (z * SIZE)] = Chunk.MAX_LIGHT_LEVEL;
+                }
+            }
         }
-        if (z < 0 || z >= SIZE) {
-            return 0;
+
+        //sections share the layout of the caches, so they are unpacked whole and copied at an offset
+        for (int sectionY = 0; sectionY < highestY / ChunkSection.SECTION_SIZE; sectionY++) {
+            this.chunk.copyBlockIds(sectionY, this.sectionBlocks);
+            int start = sectionY * ChunkSection.SECTION_VOLUME;
+            for (int i = 0; i < ChunkSection.SECTION_VOLUME; i++) {
+                int blockAt = this.sectionBlocks[i] & 0xFF;
+
+                this.solidCache[start + i] = Blocks.isSolid(blockAt);
+                this.blockLighting[start + i] = (byte) Blocks.getLightEmission(blockAt);
+            }
         }
-        return this.lightingRead[x + (y * SIZE * SIZE) + (z * SIZE)];
-    }
 
-    private void setLightLevel(int x, int y, int z, int lightLevel) {
-        x += Chunk.CHUNK_SIZE;
-        z += Chunk.CHUNK_SIZE;
-        this.lightingWrite[x + (y * SIZE * SIZE) + (z * SIZE)] = (byte) lightLevel;
     }
 
-    private boolean isSolid(int x, int y, int z) {
-        x += Chunk.CHUNK_SIZE;
-        z += Chunk.CHUNK_SIZE;
-        return this.solidCache[x + (y * SIZE * SIZE) + (z * SIZE)];
+    private void enqueue(int index, int lightLevel) {
+        int[] queue = this.queues[lightLevel];
+        int length = this.queuesLength[lightLevel];
+        if (queue == null) {
+            queue = new int[1024];
+            this.queues[lightLevel] = queue;
+        } else if (length == queue.length) {
+            queue = Arrays.copyOf(queue, queue.length * 2);
+            this.queues[lightLevel] = queue;
+        }
+        queue[length] = index;
+        this.queuesLength[lightLevel] = length + 1;
     }
 
-    private void setSolid(int x, int y, int z, boolean solid) {
-        x += Chunk.CHUNK_SIZE;
-        z += Chunk.CHUNK_SIZE;
-        this.solidCache[x + (y * SIZE * SIZE) + (z * SIZE)] = solid;
+    private boolean canSpread(byte[] lighting, int neighbor, int lightLevel) {
+        return !this.solidCache[neighbor] && lighting[neighbor] < lightLevel - 1;
     }
 
-    private void prepareLightingAndSolidCache() {
-        for (int absZ = 0; absZ < SIZE; absZ++) {
-            for (int absX = 0; absX < SIZE; absX++) {
-                boolean foundGround = false;
-                for (int absY = HEIGHT - 1; absY >= 0; absY--) {
-                    int x = absX - Chunk.CHUNK_SIZE;
-                    int y = absY;
-                    int z = absZ - Chunk.CHUNK_SIZE;
-
-                    Block blockAt = this.matrix.getBlock(x, y, z);
-
-                    boolean solid = blockAt != Blocks.AIR && !blockAt.isTransparent();
-                    setSolid(x, y, z, solid);
+    private void seedBoundary(byte[] lighting, int index) {
+        if (!this.solidCache[index] && lighting[index] < Chunk.MAX_LIGHT_LEVEL - 1) {
+            lighting[index] = (byte) (Chunk.MAX_LIGHT_LEVEL - 1);
+            enqueue(index, Chunk.MAX_LIGHT_LEVEL - 1);
+        }
+    }
 
-                    if (solid) {
-                        foundGround = true;
+    private void seedQueues(byte[] lighting) {
+        int seedHeight = Math.min(this.emptyLayersStart + 1, HEIGHT);
+        for (int y = 0; y < seedHeight; y++) {
+            for (int z = 0; z < SIZE; z++) {
+                for (int x = 0; x < SIZE; x++) {
+                    int index = x + (y * LAYER) + (z * SIZE);
+                    int lightLevel = lighting[index];
+                    if (lightLevel < 2) {
+                        continue;
                     }
-
-                    if (!foundGround && this.matrix.chunkFromBlock(x, z) != null) {
-                        setLightLevel(x, y, z, Chunk.MAX_LIGHT_LEVEL);
-                    } else {
-                        if (blockAt != Blocks.AIR) {
-                            setLightLevel(x, y, z, blockAt.getLightEmission());
-                        } else {
-                            setLightLevel(x, y, z, 0);
-                        }
+                    if ((x > 0 && canSpread(lighting, index - 1, lightLevel))
+                            || (x < SIZE - 1 && canSpread(lighting, index + 1, lightLevel))
+                            || (y > 0 && canSpread(lighting, index - LAYER, lightLevel))
+                            || (y < HEIGHT - 1 && canSpread(lighting, index + LAYER, lightLevel))
+                            || (z > 0 && canSpread(lighting, index - SIZE, lightLevel))
+                            || (z < SIZE - 1 && canSpread(lighting, index + SIZE, lightLevel))) {
+                        enqueue(index, lightLevel);
                     }
                 }
             }
         }
+    }
 
+    private void seedSkyBoundaries() {
+        for (int z = 0; z < SIZE; z++) {
+            for (int x = 0; x < SIZE; x++) {
+                seedBoundary(this.skyLighting, x + (z * SIZE));
+                seedBoundary(this.skyLighting, x + ((HEIGHT - 1) * LAYER) + (z * SIZE));
+            }
+        }
     }
-    
-    private void updateLighting() {
-        System.arraycopy(this.lightingRead, 0, this.lightingWrite, 0, this.lightingWrite.length);
-        
-        for (int absY = 0; absY < HEIGHT; absY++) {
-            if (this.noWorkDoneCache[absY]) {
-                continue;
+
+    private void spread(byte[] lighting, int neighbor, int lightLevel) {
+        if (canSpread(lighting, neighbor, lightLevel)) {
+            lighting[neighbor] = (byte) (lightLevel - 1);
+            if (lightLevel - 1 >= 2) {
+                enqueue(neighbor, lightLevel - 1);
             }
-            boolean noWorkDone = true;
-            for (int absZ = 0; absZ < SIZE; absZ++) {
-                for (int absX = 0; absX < SIZE; absX++) {
-                    int x = absX - Chunk.CHUNK_SIZE;
-                    int y = absY;
-                    int z = absZ - Chunk.CHUNK_SIZE;
-                    
-                    int currentLightLevel = getLightLevel(x, y, z);
-                    
-                    if (currentLightLevel >= (Chunk.MAX_LIGHT_LEVEL - 1)) {
-                        continue;
-                    }
-                    
-                    boolean solid = isSolid(x, y, z);
-                    if (solid) {
-                        continue;
-                    }
-                    
-                    noWorkDone = false;
-                    
-                    int negativeX = getLightLevel(x - 1, y, z) - 1;
-                    int positiveX = getLightLevel(x + 1, y, z) - 1;
-                    int negativeY = getLightLevel(x, y - 1, z) - 1;
-                    int positiveY = getLightLevel(x, y + 1, z) - 1;
-                    int negativeZ = getLightLevel(x, y, z - 1) - 1;
-                    int positiveZ = getLightLevel(x, y, z + 1) - 1;
-                    
-                    setLightLevel(x, y, z, 
-                            Math.max(
-                                    Math.max(
-                                            currentLightLevel,
-                                            Math.max(negativeX, positiveX)
-                                    ),
-                                    Math.max(
-                                            Math.max(negativeY, positiveY),
-                                            Math.max(negativeZ, positiveZ)
-                                    )
-                            )
-                    );
+        }
+    }
+
+    private void propagate(byte[] lighting) {
+        for (int lightLevel = Chunk.MAX_LIGHT_LEVEL; lightLevel >= 2; lightLevel--) {
+            int[] queue = this.queues[lightLevel];
+            int length = this.queuesLength[lightLevel];
+            for (int i = 0; i < length; i++) {
+                int index = queue[i];
+                if (lighting[index] != lightLevel) {
+                    continue;
+                }
+                int x = index % SIZE;
+                int y = index / LAYER;
+                int z = (index / SIZE) % SIZE;
+
+                if (x > 0) {
+                    spread(lighting, index - 1, lightLevel);
+                }
+                if (x < SIZE - 1) {
+                    spread(lighting, index + 1, lightLevel);
+                }
+                if (y > 0) {
+                    spread(lighting, index - LAYER, lightLevel);
+                }
+                if (y < HEIGHT - 1) {
+                    spread(lighting, index + LAYER, lightLevel);
+                }
+                if (z > 0) {
+                    spread(lighting, index - SIZE, lightLevel);
+                }
+                if (z < SIZE - 1) {
+                    spread(lighting, index + SIZE, lightLevel);
                 }
             }
-            this.noWorkDoneCache[absY] = noWorkDone;
+            this.queuesLength[lightLevel] = 0;
         }
     }
-    
-    private void output() {
-        Chunk center = this.matrix.getChunk(0, 0);
-        for (int y = -1; y < HEIGHT + 1; y++) {
-            for (int z = -1; z < Chunk.CHUNK_SIZE + 1; z++) {
-                for (int x = -1; x < Chunk.CHUNK_SIZE + 1; x++) {
-                    center.setLightLevel(x, y, z, getLightLevel(x, y, z));
+
+    private byte[][] output() {
+        byte[][] sections = new byte[Chunk.SECTIONS][];
+        for (int sectionY = 0; sectionY < Chunk.SECTIONS; sectionY++) {
+            int start = sectionY * ChunkSection.SECTION_VOLUME;
+            byte[] section = null;
+            for (int i = 0; i < ChunkSection.SECTION_VOLUME; i++) {
+                int light = Chunk.packLight(this.skyLighting[start + i], this.blockLighting[start + i]);
+                if (section == null && light != Chunk.FULL_SKY_LIGHT) {
+                    section = new byte[ChunkSection.SECTION_VOLUME];
+                    Arrays.fill(section, 0, i, (byte) Chunk.FULL_SKY_LIGHT);
+                }
+                if (section != null) {
+                    section[i] = (byte) light;
                 }
             }
+            sections[sectionY] = section;
         }
+        return sections;
     }
 
-    private void compute() {
+    private byte[][] compute() {
         prepareLightingAndSolidCache();
-        flipBuffers();
-        
-        for (int i = 0; i < Chunk.MAX_LIGHT_LEVEL; i++) {
-            updateLighting();
-            flipBuffers();
-        }
-        
-        output();
+
+        seedQueues(this.skyLighting);
+        seedSkyBoundaries();
+        propagate(this.skyLighting);
+
+        seedQueues(this.blockLighting);
+        propagate(this.blockLighting);
+
+        return output();
     }
 
 }
@@ -10,7 +10,21 @@ import java.util.zip.CRC32;
  */
 public class ChunkMatrix {
     
+    public static final int PADDED_SIZE = Chunk.CHUNK_SIZE + 2;
+    public static final int PADDED_HEIGHT = Chunk.CHUNK_HEIGHT + 2;
+    public static final int PADDED_VOLUME = PADDED_SIZE * PADDED_SIZE * PADDED_HEIGHT;
+    
+    private static int paddedIndex(int x, int y, int z) {
+        return (x + 1) + ((y + 1) * PADDED_SIZE * PADDED_SIZE) + ((z + 1) * PADDED_SIZE);
+    }
+    
+    //a thread prepares one matrix at a time for its mesh job, so the padded boxes are reused instead of allocated per job
+    private static final ThreadLocal<byte[]> threadBlocks = ThreadLocal.withInitial(() -> new byte[PADDED_VOLUME]);
+    private static final ThreadLocal<byte[]> threadLighting = ThreadLocal.withInitial(() -> new byte[PADDED_VOLUME]);
+    
     private final Chunk[] matrix;
+    private byte[] blocks = null;
+    private byte[] lighting = null;
     
     public ChunkMatrix() {
         this.matrix = new Chunk[3*3];
@@ -53,34 +67,38 @@ public class ChunkMatrix {
         return getChunk(chunkX, chunkZ);
     }
     
-    public Block getBlock(int x, int y, int z) {
+    public int getBlockId(int x, int y, int z) {
         if (y < 0 || y >= Chunk.CHUNK_HEIGHT) {
-            return Blocks.AIR;
+            return 0;
         }
         int chunkX = (int) Math.floor(((float)x) / Chunk.CHUNK_SIZE);
         int chunkZ = (int) Math.floor(((float)z) / Chunk.CHUNK_SIZE);
         if (chunkX < -1 || chunkX > 1) {
-            return Blocks.AIR;
+            return 0;
         }
         if (chunkZ < -1 || chunkZ > 1) {
-            return Blocks.AIR;
+            return 0;
         }
         
         Chunk chunk = getChunk(chunkX, chunkZ);
         
         if (chunk == null) {
-            return Blocks.AIR;
+            return 0;
         }
         
         x = x - (Chunk.CHUNK_SIZE * chunkX);
         z = z - (Chunk.CHUNK_SIZE * chunkZ);
         
-        return chunk.getBlock(x, y, z);
+        return chunk.getBlockId(x, y, z);
+    }
+    
+    public Block getBlock(int x, int y, int z) {
+        return Blocks.getBlock(getBlockId(x, y, z));
     }
     
-    public int getLightLevel(int x, int y, int z) {
+    public int getLight(int x, int y, int z) {
         if (y < 0 || y >= Chunk.CHUNK_HEIGHT) {
-            return Chunk.MAX_LIGHT_LEVEL;
+            return Chunk.FULL_SKY_LIGHT;
         }
         int chunkX = (int) Math.floor(((float)x) / Chunk.CHUNK_SIZE);
         int chunkZ = (int) Math.floor(((float)z) / Chunk.CHUNK_SIZE);
@@ -100,7 +118,50 @@ public class ChunkMatrix {
         x -= (Chunk.CHUNK_SIZE * chunkX);
         z -= (Chunk.CHUNK_SIZE * chunkZ);
         
-        return chunk.getLightLevel(x, y, z);
+        return chunk.getLight(x, y, z);
+    }
+    
+    public void prepareForRendering() {
+        this.blocks = threadBlocks.get();
+        this.lighting = threadLighting.get();
+        for (int z = -1; z < Chunk.CHUNK_SIZE + 1; z++) {
+            int chunkZ = Math.floorDiv(z, Chunk.CHUNK_SIZE);
+            int localZ = z - (chunkZ * Chunk.CHUNK_SIZE);
+            for (int x = -1; x < Chunk.CHUNK_SIZE + 1; x++) {
+                int chunkX = Math.floorDiv(x, Chunk.CHUNK_SIZE);
+                int localX = x - (chunkX * Chunk.CHUNK_SIZE);
+                Chunk chunk = getChunk(chunkX, chunkZ);
+                for (int y = -1; y < Chunk.CHUNK_HEIGHT + 1; y++) {
+                    int index = paddedIndex(x, y, z);
+                    if (y < 0 || y >= Chunk.CHUNK_HEIGHT) {
+                        this.blocks[index] = 0;
+                        this.lighting[index] = (byte) Chunk.FULL_SKY_LIGHT;
+                    } else if (chunk == null) {
+                        this.blocks[index] = 0;
+                        this.lighting[index] = 0;
+                    } else {
+                        this.blocks[index] = (byte) chunk.getBlockId(localX, y, localZ);
+                        this.lighting[index] = (byte) chunk.getLight(localX, y, localZ);
+                    }
+                }
+            }
+        }
+    }
+    
+    public int getBlockIdForRendering(int x, int y, int z) {
+        return this.blocks[paddedIndex(x, y, z)] & 0xFF;
+    }
+    
+    public int getLightForRendering(int x, int y, int z) {
+        return this.lighting[paddedIndex(x, y, z)] & 0xFF;
+    }
+    
+    public int getSkyLightForRendering(int x, int y, int z) {
+        return Chunk.skyLight(getLightForRendering(x, y, z));
+    }
+    
+    public int getBlockLightForRendering(int x, int y, int z) {
+        return Chunk.blockLight(getLightForRendering(x, y, z));
     }
     
     @Override
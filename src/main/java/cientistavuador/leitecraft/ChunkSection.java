@@ -0,0 +1,153 @@
+package cientistavuador.leitecraft;
+
+import java.util.Arrays;
+
+/**
+ *
+ * @author Cien
+ */
+public class ChunkSection {
+
+    public static final int SECTION_SIZE = 16;
+    public static final int SECTION_VOLUME = SECTION_SIZE * SECTION_SIZE * SECTION_SIZE;
+
+    private PalettedStorage blocks = null;
+    private int uniformBlock;
+
+    private PalettedStorage blocksData = null;
+    private int uniformData = 0;
+
+    private int nonAirBlocks;
+
+    private boolean shared = false;
+
+    public ChunkSection(int uniformBlock) {
+        this.uniformBlock = uniformBlock;
+        this.nonAirBlocks = (uniformBlock != 0 ? SECTION_VOLUME : 0);
+    }
+
+    public ChunkSection(ChunkSection toCopy) {
+        this.blocks = (toCopy.blocks == null ? null : new PalettedStorage(toCopy.blocks));
+        this.uniformBlock = toCopy.uniformBlock;
+        this.blocksData = (toCopy.blocksData == null ? null : new PalettedStorage(toCopy.blocksData));
+        this.uniformData = toCopy.uniformData;
+        this.nonAirBlocks = toCopy.nonAirBlocks;
+    }
+
+    private static int index(int x, int y, int z) {
+        return x + (y * SECTION_SIZE * SECTION_SIZE) + (z * SECTION_SIZE);
+    }
+
+    public int getBlockId(int x, int y, int z) {
+        if (this.blocks == null) {
+            return this.uniformBlock;
+        }
+        return this.blocks.get(index(x, y, z));
+    }
+
+    //every block id of the section in index order, unpacked in one pass instead of block by block
+    public void copyBlockIds(byte[] ids) {
+        if (this.blocks == null) {
+            Arrays.fill(ids, 0, SECTION_VOLUME, (byte) this.uniformBlock);
+            return;
+        }
+        this.blocks.copyTo(ids);
+    }
+
+    public void setBlockId(int x, int y, int z, int id) {
+        if (this.blocks == null) {
+            if (id == this.uniformBlock) {
+                return;
+            }
+            this.blocks = new PalettedStorage(SECTION_VOLUME);
+            if (this.uniformBlock != 0) {
+                for (int i = 0; i < SECTION_VOLUME; i++) {
+                    this.blocks.set(i, this.uniformBlock);
+                }
+            }
+        }
+        int index = index(x, y, z);
+        int old = this.blocks.get(index);
+        if (old == 0 && id != 0) {
+            this.nonAirBlocks++;
+        } else if (old != 0 && id == 0) {
+            this.nonAirBlocks--;
+        }
+        this.blocks.set(index, id);
+    }
+
+    public int getData(int x, int y, int z) {
+        if (this.blocksData == null) {
+            return this.uniformData;
+        }
+        return this.blocksData.get(index(x, y, z));
+    }
+
+    public void setData(int x, int y, int z, int data) {
+        if (this.blocksData == null) {
+            if (data == this.uniformData) {
+                return;
+            }
+            this.blocksData = new PalettedStorage(SECTION_VOLUME);
+            if (this.uniformData != 0) {
+                for (int i = 0; i < SECTION_VOLUME; i++) {
+                    this.blocksData.set(i, this.uniformData);
+                }
+            }
+        }
+        this.blocksData.set(index(x, y, z), data);
+    }
+
+    public boolean isShared() {
+        return this.shared;
+    }
+
+    public void markShared() {
+        this.shared = true;
+    }
+
+    public boolean isEmpty() {
+        return this.nonAirBlocks == 0;
+    }
+
+    public boolean isUniform() {
+        return this.blocks == null;
+    }
+
+    public int getUniformBlockId() {
+        return this.uniformBlock;
+    }
+
+    private static boolean isUniform(PalettedStorage storage) {
+        int first = storage.get(0);
+        for (int i = 1; i < storage.size(); i++) {
+            if (storage.get(i) != first) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void optimize() {
+        if (this.blocks != null && isUniform(this.blocks)) {
+            this.uniformBlock = this.blocks.get(0);
+            this.blocks = null;
+        }
+        if (this.blocksData != null && isUniform(this.blocksData)) {
+            this.uniformData = this.blocksData.get(0);
+            this.blocksData = null;
+        }
+    }
+
+    public int getMemoryUsage() {
+        int usage = 0;
+        if (this.blocks != null) {
+            usage += this.blocks.getMemoryUsage();
+        }
+        if (this.blocksData != null) {
+            usage += this.blocksData.getMemoryUsage();
+        }
+        return usage;
+    }
+
+}
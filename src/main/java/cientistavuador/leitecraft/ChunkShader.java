@@ -22,6 +22,8 @@ public class ChunkShader {
             """
             #version 110
             
+            #define MAX_TILES %d
+            
             uniform mat4 projection;
             uniform mat4 view;
             uniform mat4 model;
@@ -29,35 +31,55 @@ public class ChunkShader {
             
             uniform int currentFrame;
             
-            attribute vec3 vertexPosition;
-            attribute vec3 vertexNormal;
-            attribute vec2 vertexUV;
-            attribute float blendMode;
-            attribute float animatedOffset;
-            attribute float animatedFrames;
-            attribute float vertexAO;
-            attribute float vertexShadow;
+            uniform vec4 tiles[MAX_TILES];
+            uniform vec4 tilesFrameWidth[MAX_TILES / 4];
+            
+            attribute vec4 vertexPositionNormal;
+            attribute vec4 vertexTile;
+            attribute vec4 vertexShading;
             
             varying vec3 outPosition;
             varying vec3 outNormal;
-            varying vec2 outUV;
+            varying vec2 outTileUV;
+            varying vec2 outTilePosition;
+            varying vec2 outTileSize;
             varying float outBlendMode;
             varying float outAO;
-            varying float outShadow;
+            varying float outSkyLight;
+            varying float outBlockLight;
+            
+            const float minAO = 0.25;
+            const float maxAO = 1.0;
+            const float maxLightLevel = 15.0;
             
             void main() {
-                vec4 pos = model * vec4(vertexPosition, 1.0);
+                vec4 pos = model * vec4(vertexPositionNormal.xyz, 1.0);
+                
+                float normalIndex = vertexPositionNormal.w;
+                float normalAxis = floor(normalIndex / 2.0);
+                float normalSign = (mod(normalIndex, 2.0) * 2.0) - 1.0;
+                vec3 normal = vec3(equal(vec3(normalAxis), vec3(0.0, 1.0, 2.0))) * normalSign;
+                
+                int tileIndex = int(vertexTile.z + 0.5);
+                vec4 tile = tiles[tileIndex];
+                float frameWidth = dot(tilesFrameWidth[tileIndex / 4], vec4(equal(vec4(mod(vertexTile.z, 4.0)), vec4(0.0, 1.0, 2.0, 3.0))));
+                
+                float skyLight = vertexShading.y / maxLightLevel;
+                float blockLight = vertexShading.z / maxLightLevel;
                 
                 outPosition = pos.xyz;
-                outNormal = vertexNormal * normalModel;
-                outUV = vertexUV + vec2(animatedOffset * mod(float(currentFrame), animatedFrames), 0.0);
-                outBlendMode = blendMode;
-                outAO = vertexAO;
-                outShadow = vertexShadow;
+                outNormal = normal * normalModel;
+                outTileUV = vertexTile.xy;
+                outTilePosition = tile.xy + vec2(frameWidth * mod(float(currentFrame), vertexTile.w), 0.0);
+                outTileSize = tile.zw;
+                outBlendMode = vertexShading.w;
+                outAO = mix(maxAO, minAO, vertexShading.x / 3.0);
+                outSkyLight = skyLight * skyLight;
+                outBlockLight = blockLight * blockLight;
                 
                 gl_Position = projection * view * pos;
             }
-            """,
+            """.formatted(Blocks.MAX_TILES),
             """
             #version 110
             
@@ -68,20 +90,35 @@ public class ChunkShader {
             uniform vec3 sunDiffuse;
             uniform vec3 sunAmbient;
             uniform vec3 sunDirection;
+            uniform float daylight;
             
             uniform sampler2D atlasTexture;
             
             varying vec3 outPosition;
             varying vec3 outNormal;
-            varying vec2 outUV;
+            varying vec2 outTileUV;
+            varying vec2 outTilePosition;
+            varying vec2 outTileSize;
             varying float outBlendMode;
             varying float outAO;
-            varying float outShadow;
+            varying float outSkyLight;
+            varying float outBlockLight;
             
             const float gamma = 2.2;
             
+            float mipLevel(vec2 uv) {
+                vec2 dx = dFdx(uv);
+                vec2 dy = dFdy(uv);
+                return 0.5 * log2(max(max(dot(dx, dx), dot(dy, dy)), 1e-20));
+            }
+            
             void main() {
-                vec4 texColor = texture2D(atlasTexture, outUV);
+                vec2 uv = outTilePosition + (fract(outTileUV) * outTileSize);
+                
+                //fract breaks the uv derivatives at tile borders, bias back to the mip level of the unwrapped uv
+                float bias = mipLevel(outTilePosition + (outTileUV * outTileSize)) - mipLevel(uv);
+                
+                vec4 texColor = texture2D(atlasTexture, uv, bias);
                 
                 texColor.rgb = pow(texColor.rgb, vec3(gamma));
                 
@@ -95,10 +132,13 @@ public class ChunkShader {
                     texColor.a = 1.0;
                 }
                 
-                vec3 ambient = texColor.rgb * sunAmbient * outAO * outShadow;
-                vec3 diffuse = texColor.rgb * sunDiffuse * max(dot(normalize(outNormal), normalize(-sunDirection)), 0.0) * outAO * outShadow;
+                float skyLight = outSkyLight * daylight;
+                
+                vec3 ambient = texColor.rgb * sunAmbient * outAO * skyLight;
+                vec3 diffuse = texColor.rgb * sunDiffuse * max(dot(normalize(outNormal), normalize(-sunDirection)), 0.0) * outAO * skyLight;
+                vec3 emissive = texColor.rgb * outAO * outBlockLight;
                 
-                gl_FragColor = vec4(pow(ambient + diffuse, vec3(1.0/gamma)), texColor.a);
+                gl_FragColor = vec4(pow(max(ambient + diffuse, emissive), vec3(1.0/gamma)), texColor.a);
             }
             """
     );
@@ -111,24 +151,41 @@ public class ChunkShader {
     public static final int UNIFORM_SUN_DIFFUSE = glGetUniformLocation(SHADER_PROGRAM, "sunDiffuse");
     public static final int UNIFORM_SUN_AMBIENT = glGetUniformLocation(SHADER_PROGRAM, "sunAmbient");
     public static final int UNIFORM_SUN_DIRECTION = glGetUniformLocation(SHADER_PROGRAM, "sunDirection");
+    public static final int UNIFORM_DAYLIGHT = glGetUniformLocation(SHADER_PROGRAM, "daylight");
     public static final int UNIFORM_ATLAS_TEXTURE = glGetUniformLocation(SHADER_PROGRAM, "atlasTexture");
 
-    public static final int ATTRIBUTE_POSITION = glGetAttribLocation(SHADER_PROGRAM, "vertexPosition");
-    public static final int ATTRIBUTE_NORMAL = glGetAttribLocation(SHADER_PROGRAM, "vertexNormal");
-    public static final int ATTRIBUTE_UV = glGetAttribLocation(SHADER_PROGRAM, "vertexUV");
-    public static final int ATTRIBUTE_BLEND_MODE = glGetAttribLocation(SHADER_PROGRAM, "blendMode");
-    public static final int ATTRIBUTE_ANIMATED_OFFSET = glGetAttribLocation(SHADER_PROGRAM, "animatedOffset");
-    public static final int ATTRIBUTE_ANIMATED_FRAMES = glGetAttribLocation(SHADER_PROGRAM, "animatedFrames");
-    public static final int ATTRIBUTE_AO = glGetAttribLocation(SHADER_PROGRAM, "vertexAO");
-    public static final int ATTRIBUTE_SHADOW = glGetAttribLocation(SHADER_PROGRAM, "vertexShadow");
+    public static final int UNIFORM_TILES = glGetUniformLocation(SHADER_PROGRAM, "tiles");
+    public static final int UNIFORM_TILES_FRAME_WIDTH = glGetUniformLocation(SHADER_PROGRAM, "tilesFrameWidth");
+
+    public static final int ATTRIBUTE_POSITION_NORMAL = glGetAttribLocation(SHADER_PROGRAM, "vertexPositionNormal");
+    public static final int ATTRIBUTE_TILE = glGetAttribLocation(SHADER_PROGRAM, "vertexTile");
+    public static final int ATTRIBUTE_SHADING = glGetAttribLocation(SHADER_PROGRAM, "vertexShading");
+
+    static {
+        AtlasTexture[] tiles = Blocks.getTiles();
+        float[] tilesData = new float[Blocks.MAX_TILES * 4];
+        float[] frameWidthData = new float[Blocks.MAX_TILES];
+        for (int i = 0; i < tiles.length; i++) {
+            AtlasTexture tile = tiles[i];
+            tilesData[(i * 4) + 0] = tile.getLowerPosition().x();
+            tilesData[(i * 4) + 1] = tile.getLowerPosition().y();
+            tilesData[(i * 4) + 2] = tile.getHigherPosition().x() - tile.getLowerPosition().x();
+            tilesData[(i * 4) + 3] = tile.getHigherPosition().y() - tile.getLowerPosition().y();
+            frameWidthData[i] = ((float) tile.getWidth()) / Atlas.getInstance().getWidth();
+        }
+        glUseProgram(SHADER_PROGRAM);
+        glUniform4fv(UNIFORM_TILES, tilesData);
+        glUniform4fv(UNIFORM_TILES_FRAME_WIDTH, frameWidthData);
+        glUseProgram(0);
+    }
 
     public static void use() {
         glUseProgram(SHADER_PROGRAM);
     }
 
-    public static void attribute(int attribute, int size, int stride, int offset, boolean normalized) {
+    public static void attribute(int attribute, int size, int type, int stride, int offset) {
         glEnableVertexAttribArray(attribute);
-        glVertexAttribPointer(attribute, size, GL_FLOAT, normalized, stride * Float.BYTES, offset * Float.BYTES);
+        glVertexAttribPointer(attribute, size, type, false, stride, offset);
     }
 
     public static void uniformCameraMatrices(Matrix4fc projection, Matrix4fc view) {
@@ -177,6 +234,10 @@ public class ChunkShader {
         glUniform3f(UNIFORM_SUN_DIRECTION, sunDirection.x(), sunDirection.y(), sunDirection.z());
     }
 
+    public static void uniformDaylight(float daylight) {
+        glUniform1f(UNIFORM_DAYLIGHT, daylight);
+    }
+
     public static void uniformAtlasTexture(int unit) {
         glUniform1i(UNIFORM_ATLAS_TEXTURE, unit);
     }
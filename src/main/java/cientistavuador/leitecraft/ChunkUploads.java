@@ -0,0 +1,60 @@
+package cientistavuador.leitecraft;
+
+/**
+ *
+ * @author Cien
+ */
+public class ChunkUploads {
+
+    public static volatile float BUDGET_MILLISECONDS = 2f;
+    public static volatile long BUDGET_BYTES = 4 * 1024 * 1024;
+
+    private static long frameNanos = 0;
+    private static long frameBytes = 0;
+    private static int frameUploads = 0;
+
+    private static long lastFrameNanos = 0;
+    private static long lastFrameBytes = 0;
+    private static int lastFrameUploads = 0;
+
+    public static void beginFrame() {
+        lastFrameNanos = frameNanos;
+        lastFrameBytes = frameBytes;
+        lastFrameUploads = frameUploads;
+
+        frameNanos = 0;
+        frameBytes = 0;
+        frameUploads = 0;
+    }
+
+    public static boolean canUpload() {
+        //always let one through, a single mesh larger than the budget would never be uploaded otherwise
+        if (frameUploads == 0) {
+            return true;
+        }
+        return frameNanos < (long) (BUDGET_MILLISECONDS * 1_000_000.0) && frameBytes < BUDGET_BYTES;
+    }
+
+    public static void uploaded(long bytes, long nanos) {
+        frameBytes += bytes;
+        frameNanos += nanos;
+        frameUploads++;
+    }
+
+    public static int getUploadsPerFrame() {
+        return lastFrameUploads;
+    }
+
+    public static long getBytesPerFrame() {
+        return lastFrameBytes;
+    }
+
+    public static float getMillisecondsPerFrame() {
+        return (float) (lastFrameNanos / 1_000_000.0);
+    }
+
+    private ChunkUploads() {
+
+    }
+
+}
@@ -13,12 +13,17 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 import org.joml.Matrix4fc;
 import org.joml.Vector3fc;
+import org.lwjgl.PointerBuffer;
+import static org.lwjgl.opengl.GL32.glDrawElementsBaseVertex;
+import static org.lwjgl.opengl.GL32.glMultiDrawElementsBaseVertex;
 import org.lwjgl.system.MemoryStack;
 
 /**
@@ -27,7 +32,8 @@ import org.lwjgl.system.MemoryStack;
  */
 public class Game {
 
-    public static boolean CAN_UPDATE_CHUNK = true;
+    public static final float DAY_LENGTH = 600f;
+    public static final float MIN_DAYLIGHT = 0.08f;
 
     private static final Game INSTANCE = new Game();
 
@@ -45,6 +51,9 @@ public class Game {
     private final Vector3f sunDiffuse = new Vector3f(0.6f, 0.6f, 0.6f);
     private final Vector3f sunDirection = new Vector3f(-1f, -1f, -1f).normalize();
 
+    private float timeOfDay = 0f;
+    private float daylight = 1f;
+
     private int currentFrame = 0;
     private float currentFrameCounter = 0f;
 
@@ -57,6 +66,12 @@ public class Game {
 
     private boolean hoveringIncreaseViewDistance = false;
     private boolean hoveringDecreaseViewDistance = false;
+
+    private int[] drawFirstQuads = new int[Chunk.SECTIONS * 2];
+    private int[] drawAmounts = new int[Chunk.SECTIONS * 2];
+    private int amountOfDraws = 0;
+    private long submittedQuads = 0;
+    private long culledQuads = 0;
     private boolean hoveringGPUOcclusionCulling = false;
 
     private boolean gpuOcclusionCulling = true;
@@ -69,59 +84,189 @@ public class Game {
         this.controller.getPlayerPhysics().teleportToTheTop();
     }
 
-    private void render(RenderableChunk chunk, boolean alpha) {
-        int count = chunk.getSolidCount();
-        int offset = chunk.getSolidOffset();
+    private void pointAttributes(int base, boolean wireframe) {
+        if (wireframe) {
+            ChunkShader.attribute(WireframeShader.ATTRIBUTE_VERTEX_POSITION, 3, GL_UNSIGNED_BYTE,
+                    VerticesStream.VERTEX_BYTES, base + VerticesStream.POSITION_OFFSET);
+        } else {
+            ChunkShader.attribute(ChunkShader.ATTRIBUTE_POSITION_NORMAL, 4, GL_UNSIGNED_BYTE,
+                    VerticesStream.VERTEX_BYTES, base + VerticesStream.POSITION_OFFSET);
+
+            ChunkShader.attribute(ChunkShader.ATTRIBUTE_TILE, 4, GL_UNSIGNED_BYTE,
+                    VerticesStream.VERTEX_BYTES, base + VerticesStream.TILE_UV_OFFSET);
+
+            ChunkShader.attribute(ChunkShader.ATTRIBUTE_SHADING, 4, GL_UNSIGNED_BYTE,
+                    VerticesStream.VERTEX_BYTES, base + VerticesStream.AO_OFFSET);
+        }
+    }
+
+    private void queueQuads(int firstQuad, int amountOfQuads) {
+        for (int quad = firstQuad; quad < firstQuad + amountOfQuads; quad += QuadIndexBuffer.MAX_QUADS) {
+            if (this.amountOfDraws == this.drawFirstQuads.length) {
+                this.drawFirstQuads = Arrays.copyOf(this.drawFirstQuads, this.amountOfDraws * 2);
+                this.drawAmounts = Arrays.copyOf(this.drawAmounts, this.amountOfDraws * 2);
+            }
+            this.drawFirstQuads[this.amountOfDraws] = quad;
+            this.drawAmounts[this.amountOfDraws] = Math.min(firstQuad + amountOfQuads - quad, QuadIndexBuffer.MAX_QUADS);
+            this.amountOfDraws++;
+        }
+    }
+
+    private void queueSection(RenderableChunk chunk, int sectionY, boolean alpha, int visibleFaces) {
+        int quad = chunk.getFirstQuad() + chunk.getSectionFirstQuad(sectionY);
         if (alpha) {
-            count = chunk.getAlphaCount();
-            offset = chunk.getAlphaOffset();
+            quad += chunk.getSectionSolidQuads(sectionY);
+        }
+
+        //neighboring visible faces are merged into a single range
+        int runStart = quad;
+        int runQuads = 0;
+        for (int face = 0; face < VerticesStream.FACE_GROUPS; face++) {
+            int faceQuads = (alpha ? chunk.getSectionAlphaFaceQuads(sectionY, face) : chunk.getSectionSolidFaceQuads(sectionY, face));
+            if ((visibleFaces & (1 << face)) != 0) {
+                runQuads += faceQuads;
+                this.submittedQuads += faceQuads;
+            } else {
+                if (runQuads != 0) {
+                    queueQuads(runStart, runQuads);
+                }
+                runStart = quad + faceQuads;
+                runQuads = 0;
+                this.culledQuads += faceQuads;
+            }
+            quad += faceQuads;
         }
+        if (runQuads != 0) {
+            queueQuads(runStart, runQuads);
+        }
+    }
 
-        if (count == 0) {
+    private void drawQueuedQuads(boolean wireframe) {
+        if (this.amountOfDraws == 0) {
             return;
         }
-        
-        ChunkShader.uniformModel(chunk.getModelMatrix());
+        if (Main.isSupported(3, 2)) {
+            try (MemoryStack stack = MemoryStack.stackPush()) {
+                IntBuffer counts = stack.mallocInt(this.amountOfDraws);
+                PointerBuffer indices = stack.callocPointer(this.amountOfDraws);
+                IntBuffer baseVertices = stack.mallocInt(this.amountOfDraws);
+                for (int i = 0; i < this.amountOfDraws; i++) {
+                    counts.put(i, this.drawAmounts[i] * QuadIndexBuffer.INDICES_PER_QUAD);
+                    baseVertices.put(i, this.drawFirstQuads[i] * QuadIndexBuffer.VERTICES_PER_QUAD);
+                }
+                glMultiDrawElementsBaseVertex(GL_TRIANGLES, counts, GL_UNSIGNED_SHORT, indices, baseVertices);
+            }
+        } else {
+            for (int i = 0; i < this.amountOfDraws; i++) {
+                pointAttributes(this.drawFirstQuads[i] * QuadIndexBuffer.VERTICES_PER_QUAD * VerticesStream.VERTEX_BYTES, wireframe);
+                glDrawElements(GL_TRIANGLES, this.drawAmounts[i] * QuadIndexBuffer.INDICES_PER_QUAD, GL_UNSIGNED_SHORT, 0);
+            }
+        }
+        this.amountOfDraws = 0;
+    }
 
-        int verticesVBO = chunk.getVBO();
-        int verticesEBO = chunk.getEBO();
-        
-        glBindBuffer(GL_ARRAY_BUFFER, verticesVBO);
-        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, verticesEBO);
+    private void bindChunkBuffers(boolean wireframe) {
+        glBindBuffer(GL_ARRAY_BUFFER, ChunkArena.VERTICES.getBuffer());
+        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, QuadIndexBuffer.EBO);
+        if (Main.isSupported(3, 2)) {
+            //base vertices do the offsetting, so the attributes are only specified once per pass
+            pointAttributes(0, wireframe);
+        }
+    }
+
+    private void unbindChunkBuffers() {
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, 0);
+    }
+
+    private void drawSortedQuads(int firstIndexQuad, int amountOfQuads, int firstQuad) {
+        if (amountOfQuads == 0) {
+            return;
+        }
+        //the sorted indices point straight at the vertices of the chunk
+        int count = amountOfQuads * QuadIndexBuffer.INDICES_PER_QUAD;
+        long indices = ((long) firstIndexQuad) * ChunkArena.INDICES.getUnitBytes();
+        if (Main.isSupported(3, 2)) {
+            glDrawElementsBaseVertex(GL_TRIANGLES, count, GL_UNSIGNED_INT, indices, firstQuad * QuadIndexBuffer.VERTICES_PER_QUAD);
+        } else {
+            pointAttributes(firstQuad * QuadIndexBuffer.VERTICES_PER_QUAD * VerticesStream.VERTEX_BYTES, false);
+            glDrawElements(GL_TRIANGLES, count, GL_UNSIGNED_INT, indices);
+        }
+    }
+
+    private void render(RenderableChunk chunk, boolean alpha) {
+        if ((alpha ? chunk.getAlphaQuads() : chunk.getSolidQuads()) == 0) {
+            return;
+        }
         
-        ChunkShader.attribute(ChunkShader.ATTRIBUTE_POSITION, 3,
-                VerticesStream.VERTEX_SIZE, VerticesStream.XYZ_OFFSET, true);
+        ChunkShader.uniformModel(chunk.getModelMatrix());
 
-        ChunkShader.attribute(ChunkShader.ATTRIBUTE_NORMAL, 3,
-                VerticesStream.VERTEX_SIZE, VerticesStream.NORMAL_XYZ_OFFSET, true);
+        int firstQuad = chunk.getFirstQuad();
+
+        if (alpha && chunk.isAlphaSorted()) {
+            //sections are horizontal slabs, drawing the ones farther from the camera section first keeps the back to front order
+            int cameraSection = Math.floorDiv((int) Math.floor(this.camera.getPosition().y()), ChunkSection.SECTION_SIZE);
+            cameraSection = Math.min(Math.max(cameraSection, 0), Chunk.SECTIONS - 1);
+
+            glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, ChunkArena.INDICES.getBuffer());
+            int runFirst = 0;
+            int runQuads = 0;
+            for (int distance = Chunk.SECTIONS - 1; distance >= 0; distance--) {
+                for (int side = -1; side <= 1; side += 2) {
+                    int i = cameraSection + (distance * side);
+                    if (i < 0 || i >= Chunk.SECTIONS || (distance == 0 && side == 1)) {
+                        continue;
+                    }
+                    int sectionQuads = chunk.getSectionAlphaQuads(i);
+                    if (sectionQuads == 0 || !chunk.isSectionVisible(i)) {
+                        continue;
+                    }
+                    this.submittedQuads += sectionQuads;
 
-        ChunkShader.attribute(ChunkShader.ATTRIBUTE_UV, 2,
-                VerticesStream.VERTEX_SIZE, VerticesStream.UV_OFFSET, true);
+                    int first = chunk.getSectionAlphaFirstIndexQuad(i);
+                    if (runQuads != 0 && first == runFirst + runQuads) {
+                        runQuads += sectionQuads;
+                        continue;
+                    }
+                    drawSortedQuads(runFirst, runQuads, firstQuad);
+                    runFirst = first;
+                    runQuads = sectionQuads;
+                }
+            }
+            drawSortedQuads(runFirst, runQuads, firstQuad);
+            glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, QuadIndexBuffer.EBO);
+            return;
+        }
 
-        ChunkShader.attribute(ChunkShader.ATTRIBUTE_BLEND_MODE, 1,
-                VerticesStream.VERTEX_SIZE, VerticesStream.BLEND_MODE_OFFSET, false);
+        for (int i = 0; i < Chunk.SECTIONS; i++) {
+            int amountOfQuads = (alpha ? chunk.getSectionAlphaQuads(i) : chunk.getSectionSolidQuads(i));
+            if (amountOfQuads != 0 && chunk.isSectionVisible(i)) {
+                queueSection(chunk, i, alpha, chunk.getSectionVisibleFaces(i));
+            }
+        }
 
-        ChunkShader.attribute(ChunkShader.ATTRIBUTE_ANIMATED_OFFSET, 1,
-                VerticesStream.VERTEX_SIZE, VerticesStream.ANIMATED_OFFSET, true);
+        drawQueuedQuads(false);
+    }
 
-        ChunkShader.attribute(ChunkShader.ATTRIBUTE_ANIMATED_FRAMES, 1,
-                VerticesStream.VERTEX_SIZE, VerticesStream.ANIMATED_FRAMES_OFFSET, false);
+    private String memoryReport() {
+        int amountOfChunks = this.world.amountOfChunks();
+        long usage = this.world.getMemoryUsage();
+        long perChunk = 0;
+        if (amountOfChunks != 0) {
+            perChunk = usage / amountOfChunks;
+        }
+        return "Chunks: " + amountOfChunks + " (" + (usage / 1024) + " KB, " + (perChunk / 1024) + " KB/chunk)";
+    }
 
-        ChunkShader.attribute(ChunkShader.ATTRIBUTE_AO, 1,
-                VerticesStream.VERTEX_SIZE, VerticesStream.AO_OFFSET, true);
-        
-        ChunkShader.attribute(ChunkShader.ATTRIBUTE_SHADOW, 1,
-                VerticesStream.VERTEX_SIZE, VerticesStream.SHADOW_OFFSET, true);
-        
-        glDrawElements(
-                GL_TRIANGLES,
-                count,
-                GL_UNSIGNED_INT,
-                offset
-        );
-        
-        glBindBuffer(GL_ARRAY_BUFFER, 0);
-        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, 0);
+    private int amountOfVertices() {
+        int amount = 0;
+        for (int i = 0; i < this.worldCamera.amountOfRenderableChunks(); i++) {
+            RenderableChunk chunk = this.worldCamera.getRenderableChunk(i);
+            if (chunk != null) {
+                amount += (chunk.getSolidQuads() + chunk.getAlphaQuads()) * QuadIndexBuffer.VERTICES_PER_QUAD;
+            }
+        }
+        return amount;
     }
 
     public void update() {
@@ -134,6 +279,10 @@ public class Game {
             this.currentFrame = 0;
         }
 
+        this.timeOfDay = (float) ((this.timeOfDay + Main.TPF) % DAY_LENGTH);
+        float sunHeight = (float) Math.cos((this.timeOfDay / DAY_LENGTH) * Math.PI * 2.0);
+        this.daylight = Math.max(Math.min(0.5f + sunHeight, 1f), MIN_DAYLIGHT);
+
         if (!this.camera.isMovementEnabled()) {
             this.controller.update();
         }
@@ -148,7 +297,11 @@ public class Game {
             this.camera.updateMovement();
         }
 
-        this.worldCamera.update(this.camera.getPosition().x(), this.camera.getPosition().z());
+        this.worldCamera.update(
+                this.camera.getPosition().x(), this.camera.getPosition().z(),
+                this.camera.getFront().x(), this.camera.getFront().z()
+        );
+        this.worldCamera.updateVisibleSections(this.camera.getPosition().y());
 
         this.outline.update();
 
@@ -160,31 +313,63 @@ public class Game {
     }
 
     public void loop() {
-        Game.CAN_UPDATE_CHUNK = true;
+        ChunkUploads.beginFrame();
 
         update();
 
         {
             final float textSize = 0.032f;
+            int amountOfVertices = amountOfVertices();
             UIRenderer.drawText(new StringBuilder()
                     .append("X: ").append(String.format(Locale.US, "%.2f", this.camera.getPosition().x())).append('\n')
                     .append("Y: ").append(String.format(Locale.US, "%.2f", this.camera.getPosition().y())).append('\n')
                     .append("Z: ").append(String.format(Locale.US, "%.2f", this.camera.getPosition().z())).append('\n')
+                    .append(memoryReport()).append('\n')
+                    .append("Daylight: ").append(String.format(Locale.US, "%.2f", this.daylight)).append('\n')
+                    .append("Greedy Meshing: ").append(RenderableChunk.GREEDY_MESHING ? "On" : "Off").append('\n')
+                    .append("Vertices: ").append(amountOfVertices).append(" (").append((amountOfVertices * VerticesStream.VERTEX_BYTES) / 1024).append(" KB)").append('\n')
+                    .append("Avoided Remeshes: ").append(this.worldCamera.getAvoidedRemeshes()).append('\n')
+                    .append("Mesh Jobs: ").append(RenderableChunk.getMeshJobs()).append(" (").append(RenderableChunk.getAverageMeshJobAllocation() / 1024).append(" KB allocated/job)").append('\n')
+                    .append("Pending Mesh Jobs: ").append(RenderableChunk.getPendingMeshJobs()).append(" (").append(RenderableChunk.getDiscardedMeshJobs()).append(" discarded)").append('\n')
+                    .append("Queued Chunk Jobs: ").append(Main.THREADS.getQueuedJobs()).append(" (").append(Main.THREADS.getDroppedJobs()).append(" dropped)").append('\n')
+                    .append("Uploads: ").append(ChunkUploads.getUploadsPerFrame()).append("/frame (").append(ChunkUploads.getBytesPerFrame() / 1024).append(" KB, ").append(String.format(Locale.US, "%.2f", ChunkUploads.getMillisecondsPerFrame())).append(" ms)").append('\n')
+                    .append("LOD Chunks: ")
+                    .append(this.worldCamera.amountOfChunksAtLod(0)).append(" full, ")
+                    .append(this.worldCamera.amountOfChunksAtLod(1)).append(" 2x, ")
+                    .append(this.worldCamera.amountOfChunksAtLod(2)).append(" 4x, ")
+                    .append(this.worldCamera.amountOfChunksAtLod(3)).append(" 8x").append('\n')
+                    .append("Chunk Arena: ").append(ChunkArena.VERTICES.getUsedBytes() / 1024).append(" KB/").append(ChunkArena.VERTICES.getCapacityBytes() / 1024).append(" KB, ")
+                    .append(ChunkArena.VERTICES.getFreeBlocks()).append(" holes, ")
+                    .append(String.format(Locale.US, "%.1f", ChunkArena.VERTICES.getFragmentation() * 100f)).append("% fragmented, ")
+                    .append(ChunkArena.VERTICES.getRelocations()).append(" relocations").append('\n')
+                    .append("Cave Culling: ").append(WorldCamera.CAVE_CULLING ? "On" : "Off").append(" (").append(this.worldCamera.getAmountOfVisibleSections()).append('/').append(this.worldCamera.amountOfRenderableChunks() * Chunk.SECTIONS).append(" sections visible)").append('\n')
+                    .append("Back Facing Quads Skipped: ").append(this.culledQuads).append(" (").append(String.format(Locale.US, "%.1f", (this.culledQuads * 100f) / Math.max(this.submittedQuads + this.culledQuads, 1))).append("%)").append('\n')
                     .toString(),
                     0f, 1f - (textSize * UIRenderer.ratioY()), textSize
             );
         }
+        this.submittedQuads = 0;
+        this.culledQuads = 0;
         
         List<RenderableChunk> toRender = new ArrayList<>();
 
+        int cameraCellX = (int) Math.floor(this.camera.getPosition().x());
+        int cameraCellY = (int) Math.floor(this.camera.getPosition().y());
+        int cameraCellZ = (int) Math.floor(this.camera.getPosition().z());
+
         for (int i = 0; i < this.worldCamera.amountOfRenderableChunks(); i++) {
             RenderableChunk c = this.worldCamera.getRenderableChunk(i);
             if (c == null) {
                 continue;
             }
-            if (c.getEBO() == 0 || c.getVBO() == 0) {
+            if (!c.hasMesh()) {
+                continue;
+            }
+            //walled off by solid sections, culled before any occlusion query is issued
+            if (c.getVisibleSections() == 0) {
                 continue;
             }
+            c.sortAlpha(cameraCellX, cameraCellY, cameraCellZ);
             c.calculateRelativeLocationAndMatrices(this.camera);
             toRender.add(c);
         }
@@ -272,6 +457,7 @@ public class Game {
         ChunkShader.uniformSunAmbient(this.sunAmbient);
         ChunkShader.uniformSunDiffuse(this.sunDiffuse);
         ChunkShader.uniformSunDirection(this.sunDirection);
+        ChunkShader.uniformDaylight(this.daylight);
 
         glActiveTexture(GL_TEXTURE0);
         glBindTexture(GL_TEXTURE_2D, Atlas.getInstance().getTexture());
@@ -279,9 +465,11 @@ public class Game {
 
         ChunkShader.uniformCurrentFrame(this.currentFrame);
         
+        bindChunkBuffers(false);
         for (int i = 0; i < toRender.size(); i++) {
             render(toRender.get(i), false);
         }
+        unbindChunkBuffers();
         
         ChunkShader.unuse();
 
@@ -291,9 +479,11 @@ public class Game {
 
         ChunkShader.use();
         
+        bindChunkBuffers(false);
         for (int i = toRender.size() - 1; i >= 0; i--) {
             render(toRender.get(i), true);
         }
+        unbindChunkBuffers();
 
         ChunkShader.unuse();
 
@@ -310,25 +500,14 @@ public class Game {
 
             glPolygonMode(GL_FRONT_AND_BACK, GL_LINE);
 
+            bindChunkBuffers(true);
+
             for (RenderableChunk chunk : toRender) {
-                int vbo = chunk.getVBO();
-                int ebo = chunk.getEBO();
-                int count = chunk.getSolidCount() + chunk.getAlphaCount();
-                if (count == 0 || vbo == 0 || ebo == 0) {
+                int amountOfQuads = chunk.getSolidQuads() + chunk.getAlphaQuads();
+                if (amountOfQuads == 0) {
                     continue;
                 }
 
-                glBindBuffer(GL_ARRAY_BUFFER, vbo);
-                glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, ebo);
-
-                ChunkShader.attribute(
-                        WireframeShader.ATTRIBUTE_VERTEX_POSITION,
-                        3,
-                        VerticesStream.VERTEX_SIZE,
-                        VerticesStream.XYZ_OFFSET,
-                        true
-                );
-
                 Matrix4fc projection = this.camera.getProjection();
                 Matrix4fc view = this.camera.getView();
                 Matrix4fc model = chunk.getModelMatrix();
@@ -342,7 +521,7 @@ public class Game {
                     glUniformMatrix4fv(WireframeShader.UNIFORM_PROJECTION_VIEW_MODEL, false, buffer);
                 }
 
-                Random r = new Random(vbo);
+                Random r = new Random((((long) chunk.getChunk().getChunkX()) << 32) ^ chunk.getChunk().getChunkZ());
                 int v = r.nextInt(32) + 1;
                 for (int i = 0; i < v; i++) {
                     r.nextLong();
@@ -356,12 +535,17 @@ public class Game {
 
                 glUniform4f(WireframeShader.UNIFORM_COLOR, red, green, blue, 1f);
 
-                glDrawElements(GL_TRIANGLES, count, GL_UNSIGNED_INT, 0);
-
-                glBindBuffer(GL_ARRAY_BUFFER, 0);
-                glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, 0);
+                for (int i = 0; i < Chunk.SECTIONS; i++) {
+                    int sectionQuads = chunk.getSectionSolidQuads(i) + chunk.getSectionAlphaQuads(i);
+                    if (sectionQuads != 0 && chunk.isSectionVisible(i)) {
+                        queueQuads(chunk.getFirstQuad() + chunk.getSectionFirstQuad(i), sectionQuads);
+                    }
+                }
+                drawQueuedQuads(true);
             }
 
+            unbindChunkBuffers();
+
             glPolygonMode(GL_FRONT_AND_BACK, GL_FILL);
 
             glUseProgram(0);
@@ -653,47 +837,53 @@ public class Game {
                         float relativeX = (float) (chunkX - this.camera.getPosition().x());
                         float relativeZ = (float) (chunkZ - this.camera.getPosition().z());
 
-                        float[] vertices = chunk.vertices();
-                        int[] indices = chunk.indices();
-
-                        if (vertices == null || indices == null) {
-                            continue;
-                        }
-
-                        for (int j = 0; j < vertices.length; j += VerticesStream.VERTEX_SIZE) {
-                            float x = vertices[j + 0];
-                            float y = vertices[j + 1];
-                            float z = vertices[j + 2];
-                            float nx = vertices[j + 3];
-                            float ny = vertices[j + 4];
-                            float nz = vertices[j + 5];
-                            float u = vertices[j + 6];
-                            float v = vertices[j + 7];
-
-                            x += relativeX;
-                            y += -this.camera.getPosition().y();
-                            z += relativeZ;
-
-                            writer.write("v " + x + " " + y + " " + z);
-                            writer.newLine();
-
-                            writer.write("vt " + u + " " + v);
-                            writer.newLine();
-
-                            writer.write("vn " + nx + " " + ny + " " + nz);
-                            writer.newLine();
-                        }
-
-                        for (int j = 0; j < indices.length; j += 3) {
-                            int i0 = indices[j + 0] + indexOffset + 1;
-                            int i1 = indices[j + 1] + indexOffset + 1;
-                            int i2 = indices[j + 2] + indexOffset + 1;
-
-                            writer.write("f " + i0 + "/" + i0 + "/" + i0 + " " + i1 + "/" + i1 + "/" + i1 + " " + i2 + "/" + i2 + "/" + i2);
-                            writer.newLine();
+                        for (int sectionY = 0; sectionY < Chunk.SECTIONS; sectionY++) {
+                            int[] vertices = chunk.downloadSectionVertices(sectionY);
+
+                            if (vertices.length == 0) {
+                                continue;
+                            }
+
+                            for (int j = 0; j < vertices.length / VerticesStream.VERTEX_SIZE; j++) {
+                                float x = VerticesStream.unpack(vertices, j, VerticesStream.POSITION_OFFSET + 0);
+                                float y = VerticesStream.unpack(vertices, j, VerticesStream.POSITION_OFFSET + 1);
+                                float z = VerticesStream.unpack(vertices, j, VerticesStream.POSITION_OFFSET + 2);
+                                int normal = VerticesStream.unpack(vertices, j, VerticesStream.NORMAL_OFFSET);
+                                float nx = (normal / 2 == 0 ? (normal % 2) * 2 - 1 : 0);
+                                float ny = (normal / 2 == 1 ? (normal % 2) * 2 - 1 : 0);
+                                float nz = (normal / 2 == 2 ? (normal % 2) * 2 - 1 : 0);
+                                AtlasTexture tile = Blocks.getTiles()[VerticesStream.unpack(vertices, j, VerticesStream.TILE_OFFSET)];
+                                float u = tile.getLowerPosition().x() + (VerticesStream.unpack(vertices, j, VerticesStream.TILE_UV_OFFSET + 0) * (tile.getHigherPosition().x() - tile.getLowerPosition().x()));
+                                float v = tile.getLowerPosition().y() + (VerticesStream.unpack(vertices, j, VerticesStream.TILE_UV_OFFSET + 1) * (tile.getHigherPosition().y() - tile.getLowerPosition().y()));
+
+                                x += relativeX;
+                                y += -this.camera.getPosition().y();
+                                z += relativeZ;
+
+                                writer.write("v " + x + " " + y + " " + z);
+                                writer.newLine();
+
+                                writer.write("vt " + u + " " + v);
+                                writer.newLine();
+
+                                writer.write("vn " + nx + " " + ny + " " + nz);
+                                writer.newLine();
+                            }
+
+                            int[] quadIndices = {0, 1, 2, 1, 3, 2};
+                            for (int j = 0; j < vertices.length / VerticesStream.VERTEX_SIZE; j += QuadIndexBuffer.VERTICES_PER_QUAD) {
+                                for (int k = 0; k < quadIndices.length; k += 3) {
+                                    int i0 = quadIndices[k + 0] + j + indexOffset + 1;
+                                    int i1 = quadIndices[k + 1] + j + indexOffset + 1;
+                                    int i2 = quadIndices[k + 2] + j + indexOffset + 1;
+
+                                    writer.write("f " + i0 + "/" + i0 + "/" + i0 + " " + i1 + "/" + i1 + "/" + i1 + " " + i2 + "/" + i2 + "/" + i2);
+                                    writer.newLine();
+                                }
+                            }
+
+                            indexOffset += vertices.length / VerticesStream.VERTEX_SIZE;
                         }
-
-                        indexOffset += vertices.length / VerticesStream.VERTEX_SIZE;
                     }
                 }
             } catch (IOException ex) {
@@ -727,6 +917,18 @@ public class Game {
         if (key == GLFW_KEY_F6 && action == GLFW_PRESS && Main.isSupported(3, 3)) {
             this.smokeSpawner.clear();
         }
+        if (key == GLFW_KEY_F7 && action == GLFW_PRESS) {
+            RenderableChunk.GREEDY_MESHING = !RenderableChunk.GREEDY_MESHING;
+            for (int i = 0; i < this.worldCamera.amountOfRenderableChunks(); i++) {
+                RenderableChunk chunk = this.worldCamera.getRenderableChunk(i);
+                if (chunk != null) {
+                    chunk.signalRegenerateMesh();
+                }
+            }
+        }
+        if (key == GLFW_KEY_F8 && action == GLFW_PRESS) {
+            WorldCamera.CAVE_CULLING = !WorldCamera.CAVE_CULLING;
+        }
         if (key == GLFW_KEY_R && action == GLFW_PRESS) {
             this.currentBlock = Blocks.getBlock(this.currentBlock.getId() + 1);
             if (this.currentBlock == Blocks.AIR) {
@@ -762,8 +964,8 @@ public class Game {
         }
         if (button == GLFW_MOUSE_BUTTON_LEFT && action == GLFW_PRESS && this.hoveringIncreaseViewDistance && !this.camera.isCapturingMouse()) {
             int viewDistance = this.worldCamera.getViewDistance() + 1;
-            if (viewDistance > 10) {
-                viewDistance = 10;
+            if (viewDistance > WorldCamera.MAX_VIEW_DISTANCE) {
+                viewDistance = WorldCamera.MAX_VIEW_DISTANCE;
             }
             this.worldCamera.scheduleViewDistanceUpdate(viewDistance);
         }
@@ -0,0 +1,313 @@
+package cientistavuador.leitecraft;
+
+/**
+ *
+ * @author Cien
+ */
+public class GreedyMesher {
+
+    public static final int SIZE = ChunkSection.SECTION_SIZE;
+    public static final int ROWS = SIZE + 2;
+
+    private static final int ROW_MASK = ((1 << SIZE) - 1) << 1;
+
+    private static final int[] NORMAL_AXIS = {0, 0, 1, 1, 2, 2};
+    private static final int[] U_AXIS = {2, 2, 0, 0, 0, 0};
+    private static final int[] V_AXIS = {1, 1, 2, 2, 1, 1};
+    private static final int[] NORMAL_DIRECTION = {-1, 1, -1, 1, -1, 1};
+
+    private static final int[][][] FACE_VERTICES = {
+        {{0, 0, 0}, {0, 0, 1}, {0, 1, 0}, {0, 1, 1}},
+        {{1, 0, 1}, {1, 0, 0}, {1, 1, 1}, {1, 1, 0}},
+        {{0, 0, 0}, {1, 0, 0}, {0, 0, 1}, {1, 0, 1}},
+        {{0, 1, 1}, {1, 1, 1}, {0, 1, 0}, {1, 1, 0}},
+        {{1, 0, 0}, {0, 0, 0}, {1, 1, 0}, {0, 1, 0}},
+        {{0, 0, 1}, {1, 0, 1}, {0, 1, 1}, {1, 1, 1}}
+    };
+
+    //[face][vertex][side1, side2, corner][x, y, z], relative to the block in front of the face
+    private static final int[][][][] AO_OFFSETS = new int[6][4][3][3];
+
+    static {
+        for (int face = 0; face < 6; face++) {
+            for (int i = 0; i < 4; i++) {
+                int[] vertex = FACE_VERTICES[face][i];
+                int offsetU = (vertex[U_AXIS[face]] == 1 ? 1 : -1);
+                int offsetV = (vertex[V_AXIS[face]] == 1 ? 1 : -1);
+
+                AO_OFFSETS[face][i][0][U_AXIS[face]] = offsetU;
+                AO_OFFSETS[face][i][1][V_AXIS[face]] = offsetV;
+                AO_OFFSETS[face][i][2][U_AXIS[face]] = offsetU;
+                AO_OFFSETS[face][i][2][V_AXIS[face]] = offsetV;
+            }
+        }
+    }
+
+    private static final int ID_MASK = 0xFF;
+    private static final int AO_SHIFT = 8;
+    private static final int AO_MASK = 0x3;
+    private static final int LIGHT_SHIFT = 16;
+    private static final int LIGHT_MASK = 0xFF;
+    private static final int PRESENT = 1 << 24;
+
+    private static final ThreadLocal<GreedyMesher> meshers = ThreadLocal.withInitial(GreedyMesher::new);
+
+    public static void writeSection(ChunkMatrix matrix, int sectionY, VerticesStream stream) {
+        GreedyMesher mesher = meshers.get();
+        mesher.matrix = matrix;
+        mesher.startY = sectionY * ChunkSection.SECTION_SIZE;
+        mesher.stream = stream;
+        try {
+            mesher.write();
+        } finally {
+            mesher.matrix = null;
+            mesher.stream = null;
+        }
+    }
+
+    private static int row(int y, int z) {
+        return (y + 1) + ((z + 1) * ROWS);
+    }
+
+    private ChunkMatrix matrix;
+    private int startY;
+    private VerticesStream stream;
+
+    //one bit per block along x, bit 0 is x = -1 and bit 17 is x = 16
+    private final int[] meshable = new int[ROWS * ROWS];
+    private final int[] solid = new int[ROWS * ROWS];
+    private final int[] transparent = new int[ROWS * ROWS];
+
+    private final int[][] masks = new int[SIZE][SIZE * SIZE];
+    private final int[] sliceCounts = new int[SIZE];
+
+    private final int[] coordinates = new int[3];
+    private final int[] position = new int[3];
+    private final int[] extent = new int[3];
+
+    private GreedyMesher() {
+
+    }
+
+    private void buildRows() {
+        for (int z = -1; z <= SIZE; z++) {
+            for (int y = -1; y <= SIZE; y++) {
+                int meshableRow = 0;
+                int solidRow = 0;
+                int transparentRow = 0;
+                for (int x = -1; x <= SIZE; x++) {
+                    int properties = Blocks.getProperties(this.matrix.getBlockIdForRendering(x, this.startY + y, z));
+                    int bit = 1 << (x + 1);
+                    if ((properties & Blocks.GREEDY_MESHABLE) != 0) {
+                        meshableRow |= bit;
+                    }
+                    if ((properties & Blocks.SOLID) != 0) {
+                        solidRow |= bit;
+                    }
+                    if ((properties & Blocks.TRANSPARENT) != 0) {
+                        transparentRow |= bit;
+                    }
+                }
+                int index = row(y, z);
+                this.meshable[index] = meshableRow;
+                this.solid[index] = solidRow;
+                this.transparent[index] = transparentRow;
+            }
+        }
+    }
+
+    private static int neighborRow(int[] rows, int face, int y, int z) {
+        return switch (face) {
+            case BlockVertices.NEGATIVE_X ->
+                rows[row(y, z)] << 1;
+            case BlockVertices.POSITIVE_X ->
+                rows[row(y, z)] >>> 1;
+            case BlockVertices.NEGATIVE_Y ->
+                rows[row(y - 1, z)];
+            case BlockVertices.POSITIVE_Y ->
+                rows[row(y + 1, z)];
+            case BlockVertices.NEGATIVE_Z ->
+                rows[row(y, z - 1)];
+            default ->
+                rows[row(y, z + 1)];
+        };
+    }
+
+    private boolean isSolid(int x, int y, int z) {
+        return ((this.solid[row(y, z)] >>> (x + 1)) & 1) != 0;
+    }
+
+    private void setCoordinates(int face, int x, int y, int z, int normalOffset) {
+        this.coordinates[0] = x;
+        this.coordinates[1] = y;
+        this.coordinates[2] = z;
+        this.coordinates[NORMAL_AXIS[face]] += NORMAL_DIRECTION[face] * normalOffset;
+    }
+
+    private int faceKey(int face, int id, int x, int y, int z) {
+        setCoordinates(face, x, y, z, 1);
+
+        int frontX = this.coordinates[0];
+        int frontY = this.coordinates[1];
+        int frontZ = this.coordinates[2];
+
+        int ao = 0;
+        for (int i = 0; i < 4; i++) {
+            int[][] offsets = AO_OFFSETS[face][i];
+            int aoLevel = BlockVertices.vertexAOLevel(
+                    isSolid(frontX + offsets[0][0], frontY + offsets[0][1], frontZ + offsets[0][2]),
+                    isSolid(frontX + offsets[1][0], frontY + offsets[1][1], frontZ + offsets[1][2]),
+                    isSolid(frontX + offsets[2][0], frontY + offsets[2][1], frontZ + offsets[2][2])
+            );
+            ao |= aoLevel << (i * 2);
+        }
+
+        int light = this.matrix.getLightForRendering(frontX, this.startY + frontY, frontZ);
+
+        return id | (ao << AO_SHIFT) | (light << LIGHT_SHIFT) | PRESENT;
+    }
+
+    private static int aoLevel(int key, int vertex) {
+        return (key >> (AO_SHIFT + (vertex * 2))) & AO_MASK;
+    }
+
+    private void setPosition(int face, int d, int a, int b) {
+        this.position[NORMAL_AXIS[face]] = d;
+        this.position[U_AXIS[face]] = a;
+        this.position[V_AXIS[face]] = b;
+        this.position[1] += this.startY;
+    }
+
+    public static void writeQuad(VerticesStream stream, int face, int x, int y, int z, int sizeX, int sizeY, int sizeZ, int id, int ao, int light) {
+        Block block = Blocks.getBlock(id);
+        AtlasTexture startFrame = block.getTexture(face);
+        AtlasTexture endFrame = block.getTexture(face + 6);
+
+        int tile = startFrame.getTileIndex();
+        int blend = startFrame.getBlendMode().getIndex();
+        int amountOfFrames = BlockVertices.amountOfFrames(startFrame, endFrame);
+
+        int skyLight = Chunk.skyLight(light);
+        int blockLight = Chunk.blockLight(light);
+
+        int width = (U_AXIS[face] == 0 ? sizeX : (U_AXIS[face] == 1 ? sizeY : sizeZ));
+        int height = (V_AXIS[face] == 0 ? sizeX : (V_AXIS[face] == 1 ? sizeY : sizeZ));
+
+        for (int i = 0; i < 4; i++) {
+            int[] vertex = FACE_VERTICES[face][i];
+            stream.vertex(
+                    x + (vertex[0] * sizeX),
+                    y + (vertex[1] * sizeY),
+                    z + (vertex[2] * sizeZ),
+                    face,
+                    ((i & 1) != 0 ? width : 0), ((i & 2) != 0 ? height : 0),
+                    tile,
+                    amountOfFrames,
+                    (ao >> (i * 2)) & AO_MASK,
+                    skyLight, blockLight,
+                    blend
+            );
+        }
+    }
+
+    private void writeQuad(int face, int d, int a, int b, int width, int height, int key) {
+        setPosition(face, d, a, b);
+
+        this.extent[NORMAL_AXIS[face]] = 1;
+        this.extent[U_AXIS[face]] = width;
+        this.extent[V_AXIS[face]] = height;
+
+        writeQuad(this.stream, face,
+                this.position[0], this.position[1], this.position[2],
+                this.extent[0], this.extent[1], this.extent[2],
+                key & ID_MASK,
+                (key >> AO_SHIFT) & 0xFF,
+                (key >> LIGHT_SHIFT) & LIGHT_MASK
+        );
+    }
+
+    private void mergeSlice(int face, int d) {
+        int[] mask = this.masks[d];
+        int remaining = this.sliceCounts[d];
+        for (int b = 0; b < SIZE && remaining > 0; b++) {
+            for (int a = 0; a < SIZE; a++) {
+                int key = mask[a + (b * SIZE)];
+                if (key == 0) {
+                    continue;
+                }
+
+                //ambient occlusion is interpolated across the quad, merge only along the axes it is constant on
+                boolean mergeU = aoLevel(key, 0) == aoLevel(key, 1) && aoLevel(key, 2) == aoLevel(key, 3);
+                boolean mergeV = aoLevel(key, 0) == aoLevel(key, 2) && aoLevel(key, 1) == aoLevel(key, 3);
+
+                int width = 1;
+                while (mergeU && a + width < SIZE && mask[(a + width) + (b * SIZE)] == key) {
+                    width++;
+                }
+
+                int height = 1;
+                expand:
+                while (mergeV && b + height < SIZE) {
+                    for (int i = 0; i < width; i++) {
+                        if (mask[(a + i) + ((b + height) * SIZE)] != key) {
+                            break expand;
+                        }
+                    }
+                    height++;
+                }
+
+                for (int j = 0; j < height; j++) {
+                    for (int i = 0; i < width; i++) {
+                        mask[(a + i) + ((b + j) * SIZE)] = 0;
+                    }
+                }
+                remaining -= width * height;
+
+                writeQuad(face, d, a, b, width, height, key);
+            }
+        }
+        this.sliceCounts[d] = 0;
+    }
+
+    private void write() {
+        buildRows();
+
+        for (int face = 0; face < 6; face++) {
+            for (int z = 0; z < SIZE; z++) {
+                for (int y = 0; y < SIZE; y++) {
+                    int transparentNeighbors = neighborRow(this.transparent, face, y, z);
+                    int visible = this.meshable[row(y, z)] & ~neighborRow(this.solid, face, y, z) & ROW_MASK;
+                    while (visible != 0) {
+                        int bit = Integer.lowestOneBit(visible);
+                        visible &= ~bit;
+
+                        int x = Integer.numberOfTrailingZeros(bit) - 1;
+                        int id = this.matrix.getBlockIdForRendering(x, this.startY + y, z);
+
+                        //transparent blocks hide the faces of neighbors of the same kind
+                        if ((transparentNeighbors & bit) != 0) {
+                            setCoordinates(face, x, y, z, 1);
+                            if (this.matrix.getBlockIdForRendering(this.coordinates[0], this.startY + this.coordinates[1], this.coordinates[2]) == id) {
+                                continue;
+                            }
+                        }
+
+                        setCoordinates(face, x, y, z, 0);
+                        int d = this.coordinates[NORMAL_AXIS[face]];
+                        int a = this.coordinates[U_AXIS[face]];
+                        int b = this.coordinates[V_AXIS[face]];
+
+                        this.masks[d][a + (b * SIZE)] = faceKey(face, id, x, y, z);
+                        this.sliceCounts[d]++;
+                    }
+                }
+            }
+            for (int d = 0; d < SIZE; d++) {
+                if (this.sliceCounts[d] != 0) {
+                    mergeSlice(face, d);
+                }
+            }
+        }
+    }
+
+}
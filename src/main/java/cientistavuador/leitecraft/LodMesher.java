@@ -0,0 +1,258 @@
+package cientistavuador.leitecraft;
+
+/**
+ *
+ * @author Cien
+ */
+public class LodMesher {
+
+    public static final int MAX_LOD = 3;
+
+    public static int cellSize(int lod) {
+        return 1 << lod;
+    }
+
+    private static final ThreadLocal<LodMesher> meshers = ThreadLocal.withInitial(LodMesher::new);
+
+    public static void writeChunk(ChunkMatrix matrix, int lod, VerticesStream solidStream, VerticesStream alphaStream) {
+        if (lod <= 0 || lod > MAX_LOD) {
+            throw new RuntimeException("Invalid LOD " + lod);
+        }
+        LodMesher mesher = meshers.get();
+        mesher.matrix = matrix;
+        mesher.size = cellSize(lod);
+        mesher.cells = Chunk.CHUNK_SIZE / mesher.size;
+        mesher.solidStream = solidStream;
+        mesher.alphaStream = alphaStream;
+        try {
+            mesher.write();
+        } finally {
+            mesher.matrix = null;
+            mesher.solidStream = null;
+            mesher.alphaStream = null;
+        }
+    }
+
+    private static final int ROWS = (Chunk.CHUNK_SIZE / 2) + 2;
+    private static final int UNKNOWN = -1;
+
+    private ChunkMatrix matrix;
+    private int size;
+    private int cells;
+    private VerticesStream solidStream;
+    private VerticesStream alphaStream;
+
+    //one entry per cell, including a ring of cells from the neighbor chunks
+    private final int[] ground = new int[ROWS * ROWS];
+    private final int[] groundId = new int[ROWS * ROWS];
+    private final int[] groundLight = new int[ROWS * ROWS];
+    private final int[] liquid = new int[ROWS * ROWS];
+    private final int[] liquidId = new int[ROWS * ROWS];
+    private final int[] liquidLight = new int[ROWS * ROWS];
+
+    private final int[] ids = new int[Chunk.CHUNK_SIZE * Chunk.CHUNK_SIZE];
+    private final int[] counts = new int[Chunk.CHUNK_SIZE * Chunk.CHUNK_SIZE];
+    private int amountOfIds = 0;
+
+    private LodMesher() {
+
+    }
+
+    private int cell(int cellX, int cellZ) {
+        return (cellX + 1) + ((cellZ + 1) * (this.cells + 2));
+    }
+
+    private void countId(int id) {
+        for (int i = 0; i < this.amountOfIds; i++) {
+            if (this.ids[i] == id) {
+                this.counts[i]++;
+                return;
+            }
+        }
+        this.ids[this.amountOfIds] = id;
+        this.counts[this.amountOfIds] = 1;
+        this.amountOfIds++;
+    }
+
+    private int mostFrequentId() {
+        int id = 0;
+        int count = 0;
+        for (int i = 0; i < this.amountOfIds; i++) {
+            if (this.counts[i] > count) {
+                id = this.ids[i];
+                count = this.counts[i];
+            }
+        }
+        this.amountOfIds = 0;
+        return id;
+    }
+
+    private void summarizeCell(int cellX, int cellZ) {
+        int index = cell(cellX, cellZ);
+        int startX = cellX * this.size;
+        int startZ = cellZ * this.size;
+
+        Chunk chunk = this.matrix.chunkFromBlock(startX, startZ);
+        if (chunk == null) {
+            this.ground[index] = UNKNOWN;
+            return;
+        }
+        int localStartX = startX - (Math.floorDiv(startX, Chunk.CHUNK_SIZE) * Chunk.CHUNK_SIZE);
+        int localStartZ = startZ - (Math.floorDiv(startZ, Chunk.CHUNK_SIZE) * Chunk.CHUNK_SIZE);
+
+        int heightSum = 0;
+        int groundSky = 0;
+        int groundBlock = 0;
+
+        int liquidColumns = 0;
+        int liquidHeight = 0;
+        int liquidSky = 0;
+        int liquidBlock = 0;
+        int liquidBlockId = 0;
+
+        for (int z = 0; z < this.size; z++) {
+            for (int x = 0; x < this.size; x++) {
+                int localX = localStartX + x;
+                int localZ = localStartZ + z;
+
+                int solid = chunk.getSolidHeight(localX, localZ);
+                heightSum += solid;
+                if (solid > 0) {
+                    countId(chunk.getBlockId(localX, solid - 1, localZ));
+                }
+
+                int light = this.matrix.getLight(startX + x, solid, startZ + z);
+                groundSky = Math.max(groundSky, Chunk.skyLight(light));
+                groundBlock = Math.max(groundBlock, Chunk.blockLight(light));
+
+                //billboards and other non solid blocks standing on the ground are skipped
+                int surface = chunk.getSurfaceHeight(localX, localZ);
+                while (surface > solid && (Blocks.getProperties(chunk.getBlockId(localX, surface - 1, localZ)) & Blocks.LIQUID) == 0) {
+                    surface--;
+                }
+                if (surface > solid) {
+                    liquidColumns++;
+                    liquidHeight = Math.max(liquidHeight, surface);
+                    liquidBlockId = chunk.getBlockId(localX, surface - 1, localZ);
+
+                    int surfaceLight = this.matrix.getLight(startX + x, surface, startZ + z);
+                    liquidSky = Math.max(liquidSky, Chunk.skyLight(surfaceLight));
+                    liquidBlock = Math.max(liquidBlock, Chunk.blockLight(surfaceLight));
+                }
+            }
+        }
+
+        int columns = this.size * this.size;
+
+        this.ground[index] = Math.round(((float) heightSum) / columns);
+        this.groundId[index] = mostFrequentId();
+        this.groundLight[index] = Chunk.packLight(groundSky, groundBlock);
+
+        this.liquid[index] = 0;
+        if (liquidColumns * 2 >= columns && liquidHeight > this.ground[index]) {
+            this.liquid[index] = liquidHeight;
+            this.liquidId[index] = liquidBlockId;
+            this.liquidLight[index] = Chunk.packLight(liquidSky, liquidBlock);
+        }
+    }
+
+    private VerticesStream streamOf(int id) {
+        if (Blocks.isAlphaEnabled(id)) {
+            return this.alphaStream;
+        }
+        return this.solidStream;
+    }
+
+    private void writeTops(int[] heights, int[] tileIds, int[] lights) {
+        for (int cellZ = 0; cellZ < this.cells; cellZ++) {
+            int cellX = 0;
+            while (cellX < this.cells) {
+                int index = cell(cellX, cellZ);
+                int height = heights[index];
+                int id = tileIds[index];
+                if (height <= 0 || id == 0) {
+                    cellX++;
+                    continue;
+                }
+
+                int run = 1;
+                while (cellX + run < this.cells) {
+                    int next = cell(cellX + run, cellZ);
+                    if (heights[next] != height || tileIds[next] != id || lights[next] != lights[index]) {
+                        break;
+                    }
+                    run++;
+                }
+
+                GreedyMesher.writeQuad(streamOf(id), BlockVertices.POSITIVE_Y,
+                        cellX * this.size, height - 1, cellZ * this.size,
+                        run * this.size, 1, this.size,
+                        id, 0, lights[index]
+                );
+
+                cellX += run;
+            }
+        }
+    }
+
+    private void writeWall(int face, int cellX, int cellZ, int neighborX, int neighborZ) {
+        int index = cell(cellX, cellZ);
+        int neighbor = cell(neighborX, neighborZ);
+
+        int top = this.ground[index];
+        int bottom = this.ground[neighbor];
+        int light = this.groundLight[neighbor];
+        if (bottom == UNKNOWN) {
+            return;
+        }
+
+        //chunks with another level of detail on the other side do not line up, hang a skirt over the crack
+        boolean border = neighborX < 0 || neighborX >= this.cells || neighborZ < 0 || neighborZ >= this.cells;
+        if (border) {
+            bottom = Math.max(Math.min(bottom, top) - this.size, 0);
+        }
+        if (bottom >= top) {
+            return;
+        }
+
+        int x = cellX * this.size;
+        int z = cellZ * this.size;
+        if (face == BlockVertices.POSITIVE_X) {
+            x += this.size - 1;
+        }
+        if (face == BlockVertices.POSITIVE_Z) {
+            z += this.size - 1;
+        }
+        boolean alongX = face == BlockVertices.NEGATIVE_X || face == BlockVertices.POSITIVE_X;
+
+        GreedyMesher.writeQuad(this.solidStream, face,
+                x, bottom, z,
+                (alongX ? 1 : this.size), top - bottom, (alongX ? this.size : 1),
+                this.groundId[index], 0, light
+        );
+    }
+
+    private void write() {
+        for (int cellZ = -1; cellZ <= this.cells; cellZ++) {
+            for (int cellX = -1; cellX <= this.cells; cellX++) {
+                summarizeCell(cellX, cellZ);
+            }
+        }
+
+        writeTops(this.ground, this.groundId, this.groundLight);
+        writeTops(this.liquid, this.liquidId, this.liquidLight);
+
+        for (int cellZ = 0; cellZ < this.cells; cellZ++) {
+            for (int cellX = 0; cellX < this.cells; cellX++) {
+                if (this.ground[cell(cellX, cellZ)] <= 0 || this.groundId[cell(cellX, cellZ)] == 0) {
+                    continue;
+                }
+                writeWall(BlockVertices.NEGATIVE_X, cellX, cellZ, cellX - 1, cellZ);
+                writeWall(BlockVertices.POSITIVE_X, cellX, cellZ, cellX + 1, cellZ);
+                writeWall(BlockVertices.NEGATIVE_Z, cellX, cellZ, cellX, cellZ - 1);
+                writeWall(BlockVertices.POSITIVE_Z, cellX, cellZ, cellX, cellZ + 1);
+            }
+        }
+    }
+
+}
@@ -9,8 +9,6 @@ import java.util.Arrays;
 import java.util.Queue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.function.Supplier;
 import java.util.zip.ZipEntry;
@@ -76,11 +74,7 @@ public class Main {
     public static float MOUSE_Y;
     public static final Queue<Runnable> MAIN_TASKS = new ConcurrentLinkedQueue<>();
     public static final Thread MAIN_THREAD = Thread.currentThread();
-    public static final ExecutorService THREADS = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() - 1, (r) -> {
-        Thread t = new Thread(r, "game-auxiliar-thread");
-        t.setDaemon(true);
-        return t;
-    });
+    public static final ChunkJobScheduler THREADS = new ChunkJobScheduler(Math.max(Runtime.getRuntime().availableProcessors() - 1, 1), "game-auxiliar-thread");
 
     public static void checkError() {
         int error = glGetError();
@@ -158,10 +152,11 @@ public class Main {
 
         glEnable(GL_DEPTH_TEST);
 
-        Atlas.getInstance();
+        Atlas.getInstance().getTexture();
         Blocks.init();
         UIRenderer.init();
         ChunkShader.init();
+        QuadIndexBuffer.init();
         ConvexPolygonRenderer.polyStaticInit();
         GPUOcclusion.init();
         LineRenderer.init();
@@ -0,0 +1,172 @@
+package cientistavuador.leitecraft;
+
+/**
+ *
+ * @author Cien
+ */
+public class PalettedStorage {
+
+    public static final int MAX_PALETTE_SIZE = 16;
+    public static final int DIRECT_BITS = 8;
+
+    private final int size;
+
+    private int[] palette;
+    private int paletteSize;
+
+    private int bits;
+    private int bitsShift;
+    private int indexShift;
+    private int indexMask;
+    private long valueMask;
+
+    private long[] data;
+
+    //one byte per entry once the palette is full, read without unpacking
+    private byte[] direct;
+
+    public PalettedStorage(int size) {
+        this.size = size;
+        this.palette = new int[2];
+        this.palette[0] = 0;
+        this.paletteSize = 1;
+        resize(1);
+    }
+
+    public PalettedStorage(PalettedStorage toCopy) {
+        this.size = toCopy.size;
+        this.palette = (toCopy.palette == null ? null : toCopy.palette.clone());
+        this.paletteSize = toCopy.paletteSize;
+        this.bits = toCopy.bits;
+        this.bitsShift = toCopy.bitsShift;
+        this.indexShift = toCopy.indexShift;
+        this.indexMask = toCopy.indexMask;
+        this.valueMask = toCopy.valueMask;
+        this.data = (toCopy.data == null ? null : toCopy.data.clone());
+        this.direct = (toCopy.direct == null ? null : toCopy.direct.clone());
+    }
+
+    private void resize(int newBits) {
+        long[] oldData = this.data;
+        int oldIndexShift = this.indexShift;
+        int oldIndexMask = this.indexMask;
+        int oldBitsShift = this.bitsShift;
+        long oldValueMask = this.valueMask;
+
+        if (newBits == DIRECT_BITS) {
+            this.bits = newBits;
+            this.direct = new byte[this.size];
+            for (int i = 0; i < this.size; i++) {
+                this.direct[i] = (byte) this.palette[(int) ((oldData[i >>> oldIndexShift] >>> ((i & oldIndexMask) << oldBitsShift)) & oldValueMask)];
+            }
+            this.data = null;
+            this.palette = null;
+            this.paletteSize = 0;
+            return;
+        }
+
+        this.bits = newBits;
+        this.bitsShift = Integer.numberOfTrailingZeros(newBits);
+        this.indexShift = 6 - this.bitsShift;
+        this.indexMask = (1 << this.indexShift) - 1;
+        this.valueMask = (1L << newBits) - 1L;
+        this.data = new long[((this.size - 1) >>> this.indexShift) + 1];
+
+        if (oldData == null) {
+            return;
+        }
+
+        for (int i = 0; i < this.size; i++) {
+            writeRaw(i, (int) ((oldData[i >>> oldIndexShift] >>> ((i & oldIndexMask) << oldBitsShift)) & oldValueMask));
+        }
+    }
+
+    private void writeRaw(int index, int raw) {
+        int longIndex = index >>> this.indexShift;
+        int shift = (index & this.indexMask) << this.bitsShift;
+        this.data[longIndex] = (this.data[longIndex] & ~(this.valueMask << shift)) | (((long) raw) << shift);
+    }
+
+    private int paletteIndex(int value) {
+        for (int i = 0; i < this.paletteSize; i++) {
+            if (this.palette[i] == value) {
+                return i;
+            }
+        }
+
+        if (this.paletteSize >= MAX_PALETTE_SIZE) {
+            resize(DIRECT_BITS);
+            return -1;
+        }
+
+        if (this.paletteSize == this.palette.length) {
+            int[] newPalette = new int[this.palette.length * 2];
+            System.arraycopy(this.palette, 0, newPalette, 0, this.paletteSize);
+            this.palette = newPalette;
+        }
+
+        int index = this.paletteSize;
+        this.palette[index] = value;
+        this.paletteSize++;
+
+        if (this.paletteSize > (1 << this.bits)) {
+            resize(this.bits * 2);
+        }
+
+        return index;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public int getBitsPerEntry() {
+        return this.bits;
+    }
+
+    public int get(int index) {
+        if (this.direct != null) {
+            return this.direct[index] & 0xFF;
+        }
+        return this.palette[(int) ((this.data[index >>> this.indexShift] >>> ((index & this.indexMask) << this.bitsShift)) & this.valueMask)];
+    }
+
+    public void set(int index, int value) {
+        value &= 0xFF;
+        if (this.direct != null) {
+            this.direct[index] = (byte) value;
+            return;
+        }
+        int raw = paletteIndex(value);
+        if (raw == -1) {
+            this.direct[index] = (byte) value;
+            return;
+        }
+        writeRaw(index, raw);
+    }
+
+    public void copyTo(byte[] values) {
+        if (this.direct != null) {
+            System.arraycopy(this.direct, 0, values, 0, this.size);
+            return;
+        }
+        int perLong = 1 << this.indexShift;
+        int index = 0;
+        for (int i = 0; i < this.data.length; i++) {
+            long packed = this.data[i];
+            int end = Math.min(index + perLong, this.size);
+            for (; index < end; index++) {
+                values[index] = (byte) this.palette[(int) (packed & this.valueMask)];
+                packed >>>= this.bits;
+            }
+        }
+    }
+
+    public int getMemoryUsage() {
+        if (this.direct != null) {
+            return this.direct.length;
+        }
+        return (this.data.length * Long.BYTES) + (this.palette.length * Integer.BYTES);
+    }
+
+}
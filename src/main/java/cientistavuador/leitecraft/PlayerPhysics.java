@@ -163,7 +163,7 @@ public class PlayerPhysics {
         int playerBlockX = ((int) Math.floor(this.position.x()));
         int playerBlockZ = ((int) Math.floor(this.position.z()));
         int playerBlockY = Chunk.CHUNK_HEIGHT - 1;
-        for (int y = Chunk.CHUNK_HEIGHT - 1; y >= 0; y--) {
+        for (int y = this.world.getSurfaceHeight(playerBlockX, playerBlockZ, true) - 1; y >= 0; y--) {
             Block blockAt = this.world.getBlock(playerBlockX, y, playerBlockZ);
             if (blockAt != Blocks.AIR && blockAt.hasCollision()) {
                 playerBlockY = y;
@@ -201,17 +201,18 @@ public class PlayerPhysics {
                     int blockY = y + playerBlockY;
                     int blockZ = z + playerBlockZ;
 
-                    Block blockAt = this.world.getBlock(
+                    int blockAt = this.world.getBlockId(
                             blockX,
                             blockY,
-                            blockZ
+                            blockZ,
+                            true
                     );
 
-                    if (blockAt == Blocks.AIR) {
+                    if (blockAt == 0) {
                         continue;
                     }
 
-                    if (blockAt.hasCollision() || collidedBlocks != null) {
+                    if (Blocks.hasCollision(blockAt) || collidedBlocks != null) {
                         boolean collided = Intersectiond.testAabAab(
                                 minX, minY, minZ, maxX, maxY, maxZ,
                                 blockX, blockY, blockZ,
@@ -219,9 +220,7 @@ public class PlayerPhysics {
                         );
                         if (collided) {
                             if (collidedBlocks != null) {
-                                if (!collidedBlocks.contains(blockAt)) {
-                                    collidedBlocks.add(blockAt);
-                                }
+                                collidedBlocks.add(Blocks.getBlock(blockAt));
                                 collisionResult = true;
                             } else {
                                 return true;
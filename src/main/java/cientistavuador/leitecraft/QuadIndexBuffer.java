@@ -0,0 +1,48 @@
+package cientistavuador.leitecraft;
+
+import static org.lwjgl.opengl.GL20.*;
+
+/**
+ *
+ * @author Cien
+ */
+public class QuadIndexBuffer {
+
+    public static final int VERTICES_PER_QUAD = 4;
+    public static final int INDICES_PER_QUAD = 6;
+
+    public static final int MAX_QUADS = 65536 / VERTICES_PER_QUAD;
+
+    public static final int EBO;
+
+    static {
+        short[] indices = new short[MAX_QUADS * INDICES_PER_QUAD];
+        for (int i = 0; i < MAX_QUADS; i++) {
+            int vertex = i * VERTICES_PER_QUAD;
+            int index = i * INDICES_PER_QUAD;
+
+            indices[index + 0] = (short) (vertex + 0);
+            indices[index + 1] = (short) (vertex + 1);
+            indices[index + 2] = (short) (vertex + 2);
+            indices[index + 3] = (short) (vertex + 1);
+            indices[index + 4] = (short) (vertex + 3);
+            indices[index + 5] = (short) (vertex + 2);
+        }
+
+        int ebo = glGenBuffers();
+        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, ebo);
+        glBufferData(GL_ELEMENT_ARRAY_BUFFER, indices, GL_STATIC_DRAW);
+        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, 0);
+
+        EBO = ebo;
+    }
+
+    public static void init() {
+
+    }
+
+    private QuadIndexBuffer() {
+
+    }
+
+}
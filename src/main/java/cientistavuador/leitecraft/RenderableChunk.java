@@ -1,9 +1,16 @@
 package cientistavuador.leitecraft;
 
-import static cientistavuador.leitecraft.Chunk.CHUNK_HEIGHT;
+import cientistavuador.leitecraft.ArenaAllocator.Allocation;
 import static cientistavuador.leitecraft.Chunk.CHUNK_SIZE;
+import java.lang.management.ManagementFactory;
+import java.nio.IntBuffer;
+import java.util.Arrays;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
 import org.joml.Matrix4f;
 import org.joml.Matrix4fc;
 import org.joml.Vector2f;
@@ -11,6 +18,7 @@ import org.joml.Vector2fc;
 import org.joml.Vector3f;
 import org.joml.Vector3fc;
 import static org.lwjgl.opengl.GL20.*;
+import org.lwjgl.system.MemoryUtil;
 
 /**
  *
@@ -18,19 +26,120 @@ import static org.lwjgl.opengl.GL20.*;
  */
 public class RenderableChunk {
 
-    private static class FutureUpdate {
+    public static volatile boolean GREEDY_MESHING = true;
+
+    public static final int ALL_SECTIONS = (1 << Chunk.SECTIONS) - 1;
+    public static final int SECTION_SLACK_QUADS = 32;
+
+    public static int sectionsAround(int y) {
+        int first = Math.max(y - 1, 0) >> 4;
+        int last = Math.min(y + 1, Chunk.CHUNK_HEIGHT - 1) >> 4;
+        int sections = 0;
+        for (int i = first; i <= last; i++) {
+            sections |= (1 << i);
+        }
+        return sections;
+    }
+
+    public static final int MAX_PENDING_MESH_JOBS = Runtime.getRuntime().availableProcessors() * 2;
+
+    private static final AtomicInteger pendingMeshJobs = new AtomicInteger();
+    private static final AtomicLong discardedMeshJobs = new AtomicLong();
+    private static final AtomicLong meshJobs = new AtomicLong();
+    private static final AtomicLong meshJobsAllocatedBytes = new AtomicLong();
+
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean && bean.isThreadAllocatedMemoryEnabled()) {
+            return bean.getCurrentThreadAllocatedBytes();
+        }
+        return 0;
+    }
+
+    public static long getMeshJobs() {
+        return meshJobs.get();
+    }
+
+    public static int getPendingMeshJobs() {
+        return pendingMeshJobs.get();
+    }
+
+    public static long getDiscardedMeshJobs() {
+        return discardedMeshJobs.get();
+    }
+
+    public static long getAverageMeshJobAllocation() {
+        long jobs = meshJobs.get();
+        if (jobs == 0) {
+            return 0;
+        }
+        return meshJobsAllocatedBytes.get() / jobs;
+    }
+
+    private static long quadBytes(int quads) {
+        return ((long) quads) * QuadIndexBuffer.VERTICES_PER_QUAD * VerticesStream.VERTEX_BYTES;
+    }
+
+    private static long indexBytes(int quads) {
+        return ((long) quads) * QuadIndexBuffer.INDICES_PER_QUAD * Integer.BYTES;
+    }
+
+    private static final int[] NO_CENTERS = new int[0];
 
-        private Chunk lighting = null;
-        private float[] vertices = null;
+    //sum of the four corners of each quad, the back to front order does not need the division
+    private static int[] quadCenters(VerticesStream stream, int firstQuad, int amountOfQuads) {
+        if (amountOfQuads == 0) {
+            return NO_CENTERS;
+        }
+        int[] centers = new int[amountOfQuads * 3];
+        long address = stream.address() + quadBytes(firstQuad);
+        for (int i = 0; i < amountOfQuads * QuadIndexBuffer.VERTICES_PER_QUAD; i++) {
+            long vertex = address + (((long) i) * VerticesStream.VERTEX_BYTES) + VerticesStream.POSITION_OFFSET;
+            int quad = (i / QuadIndexBuffer.VERTICES_PER_QUAD) * 3;
+            centers[quad + 0] += MemoryUtil.memGetByte(vertex + 0) & 0xFF;
+            centers[quad + 1] += MemoryUtil.memGetByte(vertex + 1) & 0xFF;
+            centers[quad + 2] += MemoryUtil.memGetByte(vertex + 2) & 0xFF;
+        }
+        return centers;
+    }
+
+    private static class AlphaSort {
+
+        private int version = 0;
+        private int[] order = null;
         private int[] indices = null;
-        private int solidCount = 0;
-        private int solidOffset = 0;
-        private int alphaCount = 0;
-        private int alphaOffset = 0;
-        private final Vector3f halfExtents = new Vector3f();
-        private final Vector3f center = new Vector3f();
+    }
+
+    private static class FutureUpdate {
+
+        private int sections = 0;
+        private VerticesStream solidStream = null;
+        private VerticesStream alphaStream = null;
+        private final int[] sectionSolidFirstQuad = new int[Chunk.SECTIONS];
+        private final int[] sectionSolidQuads = new int[Chunk.SECTIONS];
+        private final int[] sectionAlphaFirstQuad = new int[Chunk.SECTIONS];
+        private final int[] sectionAlphaQuads = new int[Chunk.SECTIONS];
+        private final int[][] sectionSolidFaceQuads = new int[Chunk.SECTIONS][VerticesStream.FACE_GROUPS];
+        private final int[][] sectionAlphaFaceQuads = new int[Chunk.SECTIONS][VerticesStream.FACE_GROUPS];
+        private final int[][] sectionAlphaCenters = new int[Chunk.SECTIONS][];
+        private final long[] sectionConnectivity = new long[Chunk.SECTIONS];
+        private final Vector3f[] sectionMin = new Vector3f[Chunk.SECTIONS];
+        private final Vector3f[] sectionMax = new Vector3f[Chunk.SECTIONS];
         private final Vector2f textureHalfExtents = new Vector2f();
         private final Vector2f textureCenter = new Vector2f();
+
+        public FutureUpdate() {
+            for (int i = 0; i < Chunk.SECTIONS; i++) {
+                this.sectionMin[i] = new Vector3f(Float.POSITIVE_INFINITY);
+                this.sectionMax[i] = new Vector3f(Float.NEGATIVE_INFINITY);
+            }
+        }
+
+        public void release() {
+            VerticesStream.release(this.solidStream);
+            VerticesStream.release(this.alphaStream);
+            this.solidStream = null;
+            this.alphaStream = null;
+        }
     }
 
     private final WorldCamera worldCamera;
@@ -39,21 +148,29 @@ public class RenderableChunk {
     private ChunkMatrix chunkMatrix;
 
     private Future<FutureUpdate> futureUpdate = null;
+    private AtomicBoolean futureStarted = null;
+    private int futureSections = 0;
     private ChunkMatrix futureMatrix = null;
     private boolean readyForUpdate = false;
     private boolean shouldUpdate = false;
 
-    private int vbo = 0;
-    private int ebo = 0;
+    private Allocation vertices = null;
     private int queryObject = 0;
 
-    private float[] vertices = null;
-    private int[] indices = null;
+    private FutureUpdate finishedUpdate = null;
+    private int generation = 0;
+
+    private final int[] sectionSolidQuads = new int[Chunk.SECTIONS];
+    private final int[] sectionAlphaQuads = new int[Chunk.SECTIONS];
+    private final int[][] sectionSolidFaceQuads = new int[Chunk.SECTIONS][VerticesStream.FACE_GROUPS];
+    private final int[][] sectionAlphaFaceQuads = new int[Chunk.SECTIONS][VerticesStream.FACE_GROUPS];
+    private final int[] sectionFirstQuad = new int[Chunk.SECTIONS];
+    private final int[] sectionCapacity = new int[Chunk.SECTIONS];
+    private final Vector3f[] sectionMin = new Vector3f[Chunk.SECTIONS];
+    private final Vector3f[] sectionMax = new Vector3f[Chunk.SECTIONS];
 
-    private int solidCount = 0;
-    private int solidOffset = 0;
-    private int alphaCount = 0;
-    private int alphaOffset = 0;
+    private int solidQuads = 0;
+    private int alphaQuads = 0;
 
     private final Vector3f halfExtents = new Vector3f();
     private final Vector3f center = new Vector3f();
@@ -66,12 +183,34 @@ public class RenderableChunk {
     private final Matrix4f modelMatrix = new Matrix4f();
     private final Matrix4f occlusionModelMatrix = new Matrix4f();
 
-    private boolean regenerateMesh = true;
+    private final int[][] sectionAlphaCenters = new int[Chunk.SECTIONS][];
+
+    private final long[] sectionConnectivity = new long[Chunk.SECTIONS];
+    private int visibleSections = ALL_SECTIONS;
+
+    private int alphaVersion = 0;
+    private Allocation alphaIndices = null;
+    private int alphaUploadedVersion = -1;
+    private int[] alphaUploadedOrder = null;
+    private Future<AlphaSort> alphaSort = null;
+    private int alphaSortVersion = -1;
+    private int alphaSortX = 0;
+    private int alphaSortY = 0;
+    private int alphaSortZ = 0;
+
+    private int regenerateSections = ALL_SECTIONS;
     private boolean highPriority = false;
+    private int lod = 0;
 
     public RenderableChunk(WorldCamera worldCamera, Chunk chunk) {
         this.worldCamera = worldCamera;
         this.chunk = chunk;
+        for (int i = 0; i < Chunk.SECTIONS; i++) {
+            this.sectionMin[i] = new Vector3f(Float.POSITIVE_INFINITY);
+            this.sectionMax[i] = new Vector3f(Float.NEGATIVE_INFINITY);
+            this.sectionAlphaCenters[i] = NO_CENTERS;
+            this.sectionConnectivity[i] = SectionVisibility.ALL_CONNECTED;
+        }
     }
 
     public WorldCamera getWorldCamera() {
@@ -82,14 +221,14 @@ public class RenderableChunk {
         return chunk;
     }
 
-    public int getVBO() {
-        return vbo;
+    public boolean hasMesh() {
+        return this.vertices != null;
     }
 
-    public int getEBO() {
-        return ebo;
+    public int getFirstQuad() {
+        return this.vertices.getOffset();
     }
-    
+
     public int getQueryObject() {
         return queryObject;
     }
@@ -98,28 +237,92 @@ public class RenderableChunk {
         this.queryObject = queryObject;
     }
 
-    public float[] vertices() {
-        return this.vertices;
+    public int[] downloadSectionVertices(int sectionY) {
+        int amountOfQuads = this.sectionSolidQuads[sectionY] + this.sectionAlphaQuads[sectionY];
+        int[] vertices = new int[amountOfQuads * QuadIndexBuffer.VERTICES_PER_QUAD * VerticesStream.VERTEX_SIZE];
+        if (this.vertices != null && vertices.length != 0) {
+            ChunkArena.VERTICES.download(this.vertices, quadBytes(this.sectionFirstQuad[sectionY]), vertices);
+        }
+        return vertices;
+    }
+
+    public int getSectionFirstQuad(int sectionY) {
+        return this.sectionFirstQuad[sectionY];
     }
 
-    public int[] indices() {
-        return this.indices;
+    public int getSectionSolidQuads(int sectionY) {
+        return this.sectionSolidQuads[sectionY];
     }
 
-    public int getSolidCount() {
-        return solidCount;
+    public int getSectionAlphaQuads(int sectionY) {
+        return this.sectionAlphaQuads[sectionY];
     }
 
-    public int getSolidOffset() {
-        return solidOffset;
+    public int getSectionSolidFaceQuads(int sectionY, int face) {
+        return this.sectionSolidFaceQuads[sectionY][face];
     }
 
-    public int getAlphaCount() {
-        return alphaCount;
+    public int getSectionAlphaFaceQuads(int sectionY, int face) {
+        return this.sectionAlphaFaceQuads[sectionY][face];
     }
 
-    public int getAlphaOffset() {
-        return alphaOffset;
+    public long getSectionConnectivity(int sectionY) {
+        return this.sectionConnectivity[sectionY];
+    }
+
+    public int getVisibleSections() {
+        return visibleSections;
+    }
+
+    public void setVisibleSections(int visibleSections) {
+        this.visibleSections = visibleSections;
+    }
+
+    public boolean isSectionVisible(int sectionY) {
+        //a simplified mesh covers the whole column but lives in the first section
+        if (this.lod != 0) {
+            return this.visibleSections != 0;
+        }
+        return (this.visibleSections & (1 << sectionY)) != 0;
+    }
+
+    public int getSectionVisibleFaces(int sectionY) {
+        //camera position relative to the chunk, a face can only be seen from the front of its plane
+        float cameraX = -this.relativeCameraLocation.x();
+        float cameraY = -this.relativeCameraLocation.y();
+        float cameraZ = -this.relativeCameraLocation.z();
+
+        Vector3f min = this.sectionMin[sectionY];
+        Vector3f max = this.sectionMax[sectionY];
+
+        int faces = 1 << VerticesStream.UNALIGNED;
+        if (cameraX < max.x()) {
+            faces |= 1 << BlockVertices.NEGATIVE_X;
+        }
+        if (cameraX > min.x()) {
+            faces |= 1 << BlockVertices.POSITIVE_X;
+        }
+        if (cameraY < max.y()) {
+            faces |= 1 << BlockVertices.NEGATIVE_Y;
+        }
+        if (cameraY > min.y()) {
+            faces |= 1 << BlockVertices.POSITIVE_Y;
+        }
+        if (cameraZ < max.z()) {
+            faces |= 1 << BlockVertices.NEGATIVE_Z;
+        }
+        if (cameraZ > min.z()) {
+            faces |= 1 << BlockVertices.POSITIVE_Z;
+        }
+        return faces;
+    }
+
+    public int getSolidQuads() {
+        return solidQuads;
+    }
+
+    public int getAlphaQuads() {
+        return alphaQuads;
     }
 
     public Vector3fc getHalfExtents() {
@@ -172,7 +375,22 @@ public class RenderableChunk {
     }
 
     public void signalRegenerateMesh() {
-        this.regenerateMesh = true;
+        this.regenerateSections = ALL_SECTIONS;
+    }
+
+    public void signalRegenerateSections(int sections) {
+        this.regenerateSections |= sections;
+    }
+
+    public int getLod() {
+        return lod;
+    }
+
+    public void setLod(int lod) {
+        if (lod != this.lod) {
+            this.lod = lod;
+            this.regenerateSections = ALL_SECTIONS;
+        }
     }
 
     public boolean isReadyForUpdate() {
@@ -188,6 +406,12 @@ public class RenderableChunk {
     }
 
     private void checkFutureUpdate() {
+        if (this.futureUpdate != null && this.futureUpdate.isCancelled()) {
+            //dropped by the scheduler, mesh it again once it is needed
+            this.regenerateSections |= this.futureSections;
+            cancelFutureUpdate();
+            return;
+        }
         if (this.futureUpdate != null && this.futureUpdate.isDone()) {
             this.readyForUpdate = true;
 
@@ -195,44 +419,53 @@ public class RenderableChunk {
                 return;
             }
 
-            if (Game.CAN_UPDATE_CHUNK || this.highPriority) {
+            if (ChunkUploads.canUpload() || this.highPriority) {
                 try {
                     FutureUpdate update = this.futureUpdate.get();
-
-                    if (this.vbo == 0) {
-                        this.vbo = glGenBuffers();
+                    synchronized (this) {
+                        this.finishedUpdate = null;
                     }
-                    if (this.ebo == 0) {
-                        this.ebo = glGenBuffers();
-                    }
-
-                    this.chunk.copyLightingFrom(update.lighting);
-                    
-                    this.vertices = update.vertices;
-                    this.indices = update.indices;
-
-                    this.solidOffset = update.solidOffset;
-                    this.solidCount = update.solidCount;
 
-                    this.alphaOffset = update.alphaOffset;
-                    this.alphaCount = update.alphaCount;
+                    this.solidQuads = 0;
+                    this.alphaQuads = 0;
+
+                    Vector3f min = new Vector3f(Float.POSITIVE_INFINITY);
+                    Vector3f max = new Vector3f(Float.NEGATIVE_INFINITY);
+
+                    for (int i = 0; i < Chunk.SECTIONS; i++) {
+                        if ((update.sections & (1 << i)) != 0) {
+                            this.sectionSolidQuads[i] = update.sectionSolidQuads[i];
+                            this.sectionAlphaQuads[i] = update.sectionAlphaQuads[i];
+                            System.arraycopy(update.sectionSolidFaceQuads[i], 0, this.sectionSolidFaceQuads[i], 0, VerticesStream.FACE_GROUPS);
+                            System.arraycopy(update.sectionAlphaFaceQuads[i], 0, this.sectionAlphaFaceQuads[i], 0, VerticesStream.FACE_GROUPS);
+                            this.sectionAlphaCenters[i] = update.sectionAlphaCenters[i];
+                            this.sectionConnectivity[i] = update.sectionConnectivity[i];
+                            this.sectionMin[i].set(update.sectionMin[i]);
+                            this.sectionMax[i].set(update.sectionMax[i]);
+                        }
+                        this.solidQuads += this.sectionSolidQuads[i];
+                        this.alphaQuads += this.sectionAlphaQuads[i];
+                        min.min(this.sectionMin[i]);
+                        max.max(this.sectionMax[i]);
+                    }
 
-                    this.halfExtents.set(update.halfExtents);
-                    this.center.set(update.center);
+                    this.halfExtents.set(max).sub(min).mul(0.5f);
+                    this.center.set(max).add(min).mul(0.5f);
 
                     this.textureHalfExtents.set(update.textureHalfExtents);
                     this.textureCenter.set(update.textureCenter);
 
-                    glBindBuffer(GL_ARRAY_BUFFER, this.vbo);
-                    glBufferData(GL_ARRAY_BUFFER, this.vertices, GL_STATIC_DRAW);
-                    glBindBuffer(GL_ARRAY_BUFFER, 0);
+                    long uploadStart = System.nanoTime();
+                    long uploadedBytes = uploadSections(update);
+                    ChunkUploads.uploaded(uploadedBytes, System.nanoTime() - uploadStart);
+                    update.release();
 
-                    glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, this.ebo);
-                    glBufferData(GL_ELEMENT_ARRAY_BUFFER, this.indices, GL_STATIC_DRAW);
-                    glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, 0);
+                    //slots may have moved, the sorted indices are stale until sorted again
+                    this.alphaVersion++;
 
                     this.futureUpdate = null;
-                    Game.CAN_UPDATE_CHUNK = false;
+                    this.futureStarted = null;
+                    this.futureSections = 0;
                 } catch (InterruptedException | ExecutionException ex) {
                     throw new RuntimeException(ex);
                 }
@@ -240,88 +473,425 @@ public class RenderableChunk {
         }
     }
 
-    private void scheduleFutureUpdate(ChunkMatrix matrix) {
-        final ChunkMatrix cloneMatrix = new ChunkMatrix(matrix);
-        for (int i = 0; i < cloneMatrix.length(); i++) {
-            Chunk toCopy = cloneMatrix.getChunk(i);
-            if (toCopy != null) {
-                cloneMatrix.setChunk(i, new Chunk(toCopy));
-            } else {
-                cloneMatrix.setChunk(i, null);
+    private long uploadSections(FutureUpdate update) {
+        int sections = update.sections;
+        long uploadedBytes = 0;
+
+        boolean fits = this.vertices != null;
+        for (int i = 0; i < Chunk.SECTIONS; i++) {
+            if ((sections & (1 << i)) != 0 && this.sectionSolidQuads[i] + this.sectionAlphaQuads[i] > this.sectionCapacity[i]) {
+                fits = false;
+                break;
             }
         }
 
-        this.futureUpdate = Main.THREADS.submit(() -> {
-            FutureUpdate update = new FutureUpdate();
+        if (!fits) {
+            int[] oldFirstQuad = this.sectionFirstQuad.clone();
+            int amountOfQuads = 0;
+            for (int i = 0; i < Chunk.SECTIONS; i++) {
+                int quads = this.sectionSolidQuads[i] + this.sectionAlphaQuads[i];
+                this.sectionFirstQuad[i] = amountOfQuads;
+                this.sectionCapacity[i] = quads + (quads / 4) + SECTION_SLACK_QUADS;
+                amountOfQuads += this.sectionCapacity[i];
+            }
 
-            Chunk centerChunk = cloneMatrix.getChunk(0, 0);
-            update.lighting = centerChunk;
+            Allocation newVertices = ChunkArena.VERTICES.allocate(amountOfQuads);
+
+            if (this.vertices != null) {
+                for (int i = 0; i < Chunk.SECTIONS; i++) {
+                    int quads = this.sectionSolidQuads[i] + this.sectionAlphaQuads[i];
+                    if ((sections & (1 << i)) == 0 && quads != 0) {
+                        ChunkArena.VERTICES.copy(
+                                this.vertices, quadBytes(oldFirstQuad[i]),
+                                newVertices, quadBytes(this.sectionFirstQuad[i]),
+                                quadBytes(quads)
+                        );
+                    }
+                }
+                ChunkArena.VERTICES.free(this.vertices);
+            }
 
-            ChunkLighting.computeLighting(cloneMatrix);
+            this.vertices = newVertices;
+        }
 
-            VerticesStream solidStream = new VerticesStream();
-            VerticesStream alphaStream = new VerticesStream();
+        for (int i = 0; i < Chunk.SECTIONS; i++) {
+            if ((sections & (1 << i)) == 0) {
+                continue;
+            }
+            int solid = update.sectionSolidQuads[i];
+            int alpha = update.sectionAlphaQuads[i];
+            uploadedBytes += quadBytes(solid + alpha);
+            if (solid != 0) {
+                ChunkArena.VERTICES.upload(this.vertices,
+                        quadBytes(this.sectionFirstQuad[i]),
+                        update.solidStream.address() + quadBytes(update.sectionSolidFirstQuad[i]),
+                        quadBytes(solid)
+                );
+            }
+            if (alpha != 0) {
+                ChunkArena.VERTICES.upload(this.vertices,
+                        quadBytes(this.sectionFirstQuad[i] + solid),
+                        update.alphaStream.address() + quadBytes(update.sectionAlphaFirstQuad[i]),
+                        quadBytes(alpha)
+                );
+            }
+        }
+
+        return uploadedBytes;
+    }
+
+    private void scheduleFutureUpdate(ChunkMatrix matrix, int sections) {
+        final ChunkMatrix cloneMatrix = new ChunkMatrix();
+        for (int i = 0; i < matrix.length(); i++) {
+            Chunk live = matrix.getChunk(i);
+            if (live != null) {
+                cloneMatrix.setChunk(i, live.snapshot());
+            }
+        }
+
+        final int jobGeneration;
+        synchronized (this) {
+            jobGeneration = ++this.generation;
+        }
+        final AtomicBoolean started = new AtomicBoolean(false);
+        final int jobLod = this.lod;
+
+        pendingMeshJobs.incrementAndGet();
+
+        this.futureStarted = started;
+        this.futureSections = sections;
+        this.futureUpdate = Main.THREADS.submit(this.chunk.getChunkX(), this.chunk.getChunkZ(), () -> {
+            if (!started.compareAndSet(false, true)) {
+                return null;
+            }
+            try {
+                return mesh(cloneMatrix, sections, jobLod, jobGeneration);
+            } finally {
+                pendingMeshJobs.decrementAndGet();
+            }
+        });
+    }
+
+    private FutureUpdate mesh(ChunkMatrix cloneMatrix, int sections, int lod, int jobGeneration) {
+        long allocated = allocatedBytes();
+
+        FutureUpdate update = new FutureUpdate();
+        update.sections = sections;
+        update.solidStream = VerticesStream.acquire();
+        update.alphaStream = VerticesStream.acquire();
+
+        Chunk centerChunk = cloneMatrix.getChunk(0, 0);
+
+        VerticesStream solidStream = update.solidStream;
+        VerticesStream alphaStream = update.alphaStream;
+
+        if (lod != 0) {
+            //a simplified mesh is small enough to live in the slot of the first section
+            LodMesher.writeChunk(cloneMatrix, lod, solidStream, alphaStream);
+
+            update.sectionSolidQuads[0] = solidStream.amountOfQuads();
+            update.sectionAlphaQuads[0] = alphaStream.amountOfQuads();
+
+            solidStream.bounds(update.sectionMin[0], update.sectionMax[0]);
+            alphaStream.bounds(update.sectionMin[0], update.sectionMax[0]);
+        } else {
+            cloneMatrix.prepareForRendering();
+
+            boolean greedy = GREEDY_MESHING;
 
-            for (int y = 0; y < CHUNK_HEIGHT; y++) {
-                for (int z = 0; z < CHUNK_SIZE; z++) {
-                    for (int x = 0; x < CHUNK_SIZE; x++) {
-                        Block b = centerChunk.getBlock(x, y, z);
-                        if (b != Blocks.AIR) {
-                            VerticesStream stream = solidStream;
-                            if (b.isAlphaEnabled()) {
-                                stream = alphaStream;
+            for (int sectionY = 0; sectionY < Chunk.SECTIONS; sectionY++) {
+                if ((sections & (1 << sectionY)) == 0) {
+                    continue;
+                }
+
+                update.sectionSolidFirstQuad[sectionY] = solidStream.amountOfQuads();
+                update.sectionAlphaFirstQuad[sectionY] = alphaStream.amountOfQuads();
+
+                solidStream.resetBounds();
+                alphaStream.resetBounds();
+
+                if (centerChunk.getSection(sectionY) != null) {
+                    int startY = sectionY * ChunkSection.SECTION_SIZE;
+                    int endY = startY + ChunkSection.SECTION_SIZE;
+                    for (int y = startY; y < endY; y++) {
+                        for (int z = 0; z < CHUNK_SIZE; z++) {
+                            for (int x = 0; x < CHUNK_SIZE; x++) {
+                                Block b = Blocks.getBlock(cloneMatrix.getBlockIdForRendering(x, y, z));
+                                if (b != Blocks.AIR && !(greedy && b.isGreedyMeshable())) {
+                                    VerticesStream stream = solidStream;
+                                    if (b.isAlphaEnabled()) {
+                                        stream = alphaStream;
+                                    }
+                                    b.writeBlockVertices(x, y, z,
+                                            stream,
+                                            cloneMatrix
+                                    );
+                                }
                             }
-                            b.writeBlockVertices(x, y, z,
-                                    stream,
-                                    cloneMatrix
-                            );
                         }
                     }
+                    if (greedy) {
+                        GreedyMesher.writeSection(cloneMatrix, sectionY, solidStream);
+                    }
                 }
+
+                update.sectionSolidQuads[sectionY] = solidStream.amountOfQuads() - update.sectionSolidFirstQuad[sectionY];
+                update.sectionAlphaQuads[sectionY] = alphaStream.amountOfQuads() - update.sectionAlphaFirstQuad[sectionY];
+
+                solidStream.bounds(update.sectionMin[sectionY], update.sectionMax[sectionY]);
+                alphaStream.bounds(update.sectionMin[sectionY], update.sectionMax[sectionY]);
             }
+        }
 
-            float[] solidVertices = solidStream.copyVertices();
-            int[] solidIndices = solidStream.copyIndices();
+        for (int i = 0; i < Chunk.SECTIONS; i++) {
+            if ((sections & (1 << i)) != 0) {
+                //sections are drawn face by face, skipping the faces turned away from the camera
+                solidStream.groupByFace(update.sectionSolidFirstQuad[i], update.sectionSolidQuads[i], update.sectionSolidFaceQuads[i]);
+                alphaStream.groupByFace(update.sectionAlphaFirstQuad[i], update.sectionAlphaQuads[i], update.sectionAlphaFaceQuads[i]);
+                update.sectionConnectivity[i] = SectionVisibility.compute(centerChunk.getSection(i));
+                update.sectionAlphaCenters[i] = quadCenters(alphaStream, update.sectionAlphaFirstQuad[i], update.sectionAlphaQuads[i]);
+            }
+        }
 
-            float[] alphaVertices = alphaStream.copyVertices();
-            int[] alphaIndices = alphaStream.copyIndices();
+        meshJobs.incrementAndGet();
+        meshJobsAllocatedBytes.addAndGet(allocatedBytes() - allocated);
 
-            update.vertices = new float[solidVertices.length + alphaVertices.length];
-            update.indices = new int[solidIndices.length + alphaIndices.length];
+        synchronized (this) {
+            if (this.generation != jobGeneration) {
+                update.release();
+                return null;
+            }
+            this.finishedUpdate = update;
+        }
 
-            System.arraycopy(solidVertices, 0, update.vertices, 0, solidVertices.length);
-            System.arraycopy(alphaVertices, 0, update.vertices, solidVertices.length, alphaVertices.length);
+        return update;
+    }
 
-            System.arraycopy(solidIndices, 0, update.indices, 0, solidIndices.length);
-            System.arraycopy(alphaIndices, 0, update.indices, solidIndices.length, alphaIndices.length);
+    //runs a mesh job on the calling thread and throws the result away, returns how many quads it wrote
+    int meshAndDiscard(ChunkMatrix cloneMatrix, int sections) {
+        return meshAndDiscard(cloneMatrix, sections, null);
+    }
 
-            Vector3f min = new Vector3f();
-            Vector3f max = new Vector3f();
+    //same as above, the solid and alpha streams are handed to the consumer before they are released
+    int meshAndDiscard(ChunkMatrix cloneMatrix, int sections, BiConsumer<VerticesStream, VerticesStream> streams) {
+        FutureUpdate update = mesh(cloneMatrix, sections, 0, this.generation);
+        synchronized (this) {
+            this.finishedUpdate = null;
+        }
+        if (streams != null) {
+            streams.accept(update.solidStream, update.alphaStream);
+        }
+        int quads = update.solidStream.amountOfQuads() + update.alphaStream.amountOfQuads();
+        update.release();
+        return quads;
+    }
 
-            Utils.aabb(
-                    update.vertices,
-                    VerticesStream.XYZ_OFFSET, 3,
-                    VerticesStream.VERTEX_SIZE,
-                    min, max
+    private void cancelFutureUpdate() {
+        if (this.futureUpdate == null) {
+            return;
+        }
+        synchronized (this) {
+            this.generation++;
+            if (this.finishedUpdate != null) {
+                this.finishedUpdate.release();
+                this.finishedUpdate = null;
+            }
+        }
+        this.futureUpdate.cancel(false);
+        if (this.futureStarted.compareAndSet(false, true)) {
+            pendingMeshJobs.decrementAndGet();
+        }
+        discardedMeshJobs.incrementAndGet();
+
+        this.futureUpdate = null;
+        this.futureStarted = null;
+        this.readyForUpdate = false;
+    }
+
+    //alpha indices are sorted per section and laid out in section order
+    public int getSectionAlphaFirstIndexQuad(int sectionY) {
+        int quad = this.alphaIndices.getOffset();
+        for (int i = 0; i < sectionY; i++) {
+            quad += this.sectionAlphaQuads[i];
+        }
+        return quad;
+    }
+
+    public boolean isAlphaSorted() {
+        return this.alphaIndices != null && this.alphaUploadedVersion == this.alphaVersion;
+    }
+
+    public void sortAlpha(int cameraX, int cameraY, int cameraZ) {
+        checkAlphaSort();
+
+        if (this.alphaQuads == 0 || this.vertices == null || this.alphaSort != null) {
+            return;
+        }
+
+        int x = cameraX - (this.chunk.getChunkX() * CHUNK_SIZE);
+        int y = cameraY;
+        int z = cameraZ - (this.chunk.getChunkZ() * CHUNK_SIZE);
+
+        if (this.alphaSortVersion == this.alphaVersion && x == this.alphaSortX && y == this.alphaSortY && z == this.alphaSortZ) {
+            return;
+        }
+
+        this.alphaSortVersion = this.alphaVersion;
+        this.alphaSortX = x;
+        this.alphaSortY = y;
+        this.alphaSortZ = z;
+
+        final int version = this.alphaVersion;
+        final int amountOfQuads = this.alphaQuads;
+        final int[][] centers = this.sectionAlphaCenters.clone();
+        final int[] firstQuads = new int[Chunk.SECTIONS];
+        for (int i = 0; i < Chunk.SECTIONS; i++) {
+            firstQuads[i] = this.sectionFirstQuad[i] + this.sectionSolidQuads[i];
+        }
+
+        this.alphaSort = Main.THREADS.submit(this.chunk.getChunkX(), this.chunk.getChunkZ(), () -> {
+            return sortQuads(version, amountOfQuads, centers, firstQuads,
+                    (x * QuadIndexBuffer.VERTICES_PER_QUAD) + 2,
+                    (y * QuadIndexBuffer.VERTICES_PER_QUAD) + 2,
+                    (z * QuadIndexBuffer.VERTICES_PER_QUAD) + 2
             );
+        });
+    }
+
+    private static AlphaSort sortQuads(int version, int amountOfQuads, int[][] centers, int[] firstQuads, int cameraX, int cameraY, int cameraZ) {
+        long[] keys = new long[amountOfQuads];
+        int[] sectionEnds = new int[Chunk.SECTIONS];
+        int amountOfKeys = 0;
+        for (int i = 0; i < Chunk.SECTIONS; i++) {
+            int sectionStart = amountOfKeys;
+            int[] sectionCenters = centers[i];
+            for (int j = 0; j < sectionCenters.length / 3; j++) {
+                long x = sectionCenters[(j * 3) + 0] - cameraX;
+                long y = sectionCenters[(j * 3) + 1] - cameraY;
+                long z = sectionCenters[(j * 3) + 2] - cameraZ;
+                long distance = Math.min((x * x) + (y * y) + (z * z), Integer.MAX_VALUE);
+                keys[amountOfKeys++] = (distance << 32) | (firstQuads[i] + j);
+            }
+            //each section is sorted on its own, so sections hidden by cave culling can be left out when drawing
+            Arrays.sort(keys, sectionStart, amountOfKeys);
+            sectionEnds[i] = amountOfKeys;
+        }
+
+        AlphaSort sort = new AlphaSort();
+        sort.version = version;
+        sort.order = new int[amountOfKeys];
+        sort.indices = new int[amountOfKeys * QuadIndexBuffer.INDICES_PER_QUAD];
+        int section = 0;
+        int sectionStart = 0;
+        for (int i = 0; i < amountOfKeys; i++) {
+            while (i >= sectionEnds[section]) {
+                sectionStart = sectionEnds[section];
+                section++;
+            }
+            int quad = (int) keys[sectionEnds[section] - 1 - (i - sectionStart)];
+            int vertex = quad * QuadIndexBuffer.VERTICES_PER_QUAD;
+            int index = i * QuadIndexBuffer.INDICES_PER_QUAD;
+
+            sort.order[i] = quad;
+            sort.indices[index + 0] = vertex + 0;
+            sort.indices[index + 1] = vertex + 1;
+            sort.indices[index + 2] = vertex + 2;
+            sort.indices[index + 3] = vertex + 1;
+            sort.indices[index + 4] = vertex + 3;
+            sort.indices[index + 5] = vertex + 2;
+        }
+        return sort;
+    }
+
+    private void checkAlphaSort() {
+        if (this.alphaSort == null || !this.alphaSort.isDone()) {
+            return;
+        }
+        if (this.alphaSort.isCancelled()) {
+            this.alphaSort = null;
+            this.alphaSortVersion = -1;
+            return;
+        }
+
+        AlphaSort sort;
+        try {
+            sort = this.alphaSort.get();
+        } catch (InterruptedException | ExecutionException ex) {
+            throw new RuntimeException(ex);
+        }
+
+        if (sort.version != this.alphaVersion) {
+            this.alphaSort = null;
+            return;
+        }
+        if (!ChunkUploads.canUpload() && !this.highPriority) {
+            return;
+        }
+        this.alphaSort = null;
 
-            update.halfExtents.set(max).sub(min).mul(0.5f);
-            update.center.set(max).add(min).mul(0.5f);
+        long uploadStart = System.nanoTime();
+        long uploadedBytes = uploadAlphaIndices(sort);
+        ChunkUploads.uploaded(uploadedBytes, System.nanoTime() - uploadStart);
+    }
 
-            int offset = solidStream.amountOfVertices();
+    private long uploadAlphaIndices(AlphaSort sort) {
+        int amountOfQuads = sort.order.length;
+        int first = 0;
+        int last = amountOfQuads;
 
-            for (int i = solidIndices.length; i < solidIndices.length + alphaIndices.length; i++) {
-                update.indices[i] = update.indices[i] + offset;
+        if (this.alphaIndices == null || this.alphaIndices.getSize() < amountOfQuads) {
+            if (this.alphaIndices != null) {
+                ChunkArena.INDICES.free(this.alphaIndices);
+            }
+            this.alphaIndices = ChunkArena.INDICES.allocate(amountOfQuads + (amountOfQuads / 4) + SECTION_SLACK_QUADS);
+        } else if (this.alphaUploadedVersion == sort.version && this.alphaUploadedOrder.length == amountOfQuads) {
+            //same geometry, a small camera move usually only swaps a few quads
+            int[] uploadedOrder = this.alphaUploadedOrder;
+            while (first < last && sort.order[first] == uploadedOrder[first]) {
+                first++;
+            }
+            while (last > first && sort.order[last - 1] == uploadedOrder[last - 1]) {
+                last--;
             }
+        }
 
-            update.solidOffset = 0;
-            update.solidCount = solidIndices.length;
+        if (first == 0 && last == amountOfQuads) {
+            ChunkArena.INDICES.upload(this.alphaIndices, 0, sort.indices);
+        } else if (first < last) {
+            int amountOfIndices = (last - first) * QuadIndexBuffer.INDICES_PER_QUAD;
+            IntBuffer indices = MemoryUtil.memAllocInt(amountOfIndices);
+            try {
+                indices.put(sort.indices, first * QuadIndexBuffer.INDICES_PER_QUAD, amountOfIndices).flip();
+                ChunkArena.INDICES.upload(this.alphaIndices, indexBytes(first), indices);
+            } finally {
+                MemoryUtil.memFree(indices);
+            }
+        }
 
-            update.alphaOffset = update.solidCount * Integer.BYTES;
-            update.alphaCount = alphaIndices.length;
+        this.alphaUploadedOrder = sort.order;
+        this.alphaUploadedVersion = sort.version;
 
-            return update;
-        });
+        return indexBytes(last - first);
+    }
+
+    public void delete() {
+        if (this.vertices != null) {
+            ChunkArena.VERTICES.free(this.vertices);
+            this.vertices = null;
+        }
+        if (this.alphaIndices != null) {
+            ChunkArena.INDICES.free(this.alphaIndices);
+            this.alphaIndices = null;
+        }
+        if (this.alphaSort != null) {
+            this.alphaSort.cancel(false);
+            this.alphaSort = null;
+        }
+        if (this.queryObject != 0) {
+            glDeleteQueries(this.queryObject);
+            this.queryObject = 0;
+        }
+        cancelFutureUpdate();
     }
 
     public void update(ChunkMatrix matrix) {
@@ -329,12 +899,29 @@ public class RenderableChunk {
 
         this.chunkMatrix = new ChunkMatrix(matrix);
 
-        if (this.futureUpdate == null && (!this.chunkMatrix.equals(this.futureMatrix) || this.regenerateMesh)) {
-            scheduleFutureUpdate(this.chunkMatrix);
+        int sections = this.regenerateSections;
+        if (!this.chunkMatrix.equals(this.futureMatrix)) {
+            sections = ALL_SECTIONS;
+        }
+        if (this.lod != 0 && sections != 0) {
+            sections = ALL_SECTIONS;
+        }
+        if (sections != 0) {
+            boolean canSchedule = pendingMeshJobs.get() < MAX_PENDING_MESH_JOBS;
+            //a newer version supersedes a job that has not finished yet if the replacement can run now,
+            //a finished job or one that cannot be replaced is uploaded and the new sections are meshed afterwards
+            if (this.futureUpdate != null && canSchedule && !this.futureUpdate.isDone()) {
+                sections |= this.futureSections;
+                cancelFutureUpdate();
+            }
+            this.regenerateSections = sections;
+            if (this.futureUpdate == null && canSchedule) {
+                scheduleFutureUpdate(this.chunkMatrix, sections);
 
-            this.futureMatrix = new ChunkMatrix(this.chunkMatrix);
-            this.regenerateMesh = false;
-            this.readyForUpdate = false;
+                this.futureMatrix = new ChunkMatrix(this.chunkMatrix);
+                this.regenerateSections = 0;
+                this.readyForUpdate = false;
+            }
         }
 
         this.shouldUpdate = true;
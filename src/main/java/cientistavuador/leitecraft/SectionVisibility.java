@@ -0,0 +1,233 @@
+package cientistavuador.leitecraft;
+
+import java.util.Arrays;
+
+/**
+ *
+ * @author Cien
+ */
+public class SectionVisibility {
+
+    public static final int FACES = 6;
+
+    //one bit per pair of faces, set if a path of non solid blocks goes from one face to the other
+    public static final long ALL_CONNECTED = (1L << (FACES * FACES)) - 1;
+    public static final long NONE_CONNECTED = 0L;
+
+    public static int opposite(int face) {
+        return face ^ 1;
+    }
+
+    public static boolean isConnected(long connectivity, int from, int to) {
+        return (connectivity & (1L << ((from * FACES) + to))) != 0;
+    }
+
+    private static final int SIZE = ChunkSection.SECTION_SIZE;
+
+    private static final ThreadLocal<SectionVisibility> fillers = ThreadLocal.withInitial(SectionVisibility::new);
+
+    public static long compute(ChunkSection section) {
+        if (section == null || section.isEmpty()) {
+            return ALL_CONNECTED;
+        }
+        if (section.isUniform()) {
+            return (Blocks.isSolid(section.getUniformBlockId()) ? NONE_CONNECTED : ALL_CONNECTED);
+        }
+        return fillers.get().floodFill(section);
+    }
+
+    private static int index(int x, int y, int z) {
+        return x + (z * SIZE) + (y * SIZE * SIZE);
+    }
+
+    private static int facesOf(int x, int y, int z) {
+        int faces = 0;
+        if (x == 0) {
+            faces |= 1 << BlockVertices.NEGATIVE_X;
+        }
+        if (x == SIZE - 1) {
+            faces |= 1 << BlockVertices.POSITIVE_X;
+        }
+        if (y == 0) {
+            faces |= 1 << BlockVertices.NEGATIVE_Y;
+        }
+        if (y == SIZE - 1) {
+            faces |= 1 << BlockVertices.POSITIVE_Y;
+        }
+        if (z == 0) {
+            faces |= 1 << BlockVertices.NEGATIVE_Z;
+        }
+        if (z == SIZE - 1) {
+            faces |= 1 << BlockVertices.POSITIVE_Z;
+        }
+        return faces;
+    }
+
+    //flood fill scratch
+    private final boolean[] closed = new boolean[ChunkSection.SECTION_VOLUME];
+    private final int[] fill = new int[ChunkSection.SECTION_VOLUME];
+
+    //graph walk scratch, one node per section
+    private boolean[] visited = new boolean[0];
+    private int[] queueNode = new int[0];
+    private int[] queueFrom = new int[0];
+    private int[] queueDirections = new int[0];
+
+    public SectionVisibility() {
+
+    }
+
+    private long floodFill(ChunkSection section) {
+        for (int y = 0; y < SIZE; y++) {
+            for (int z = 0; z < SIZE; z++) {
+                for (int x = 0; x < SIZE; x++) {
+                    this.closed[index(x, y, z)] = Blocks.isSolid(section.getBlockId(x, y, z));
+                }
+            }
+        }
+
+        long connectivity = NONE_CONNECTED;
+        for (int start = 0; start < ChunkSection.SECTION_VOLUME; start++) {
+            if (this.closed[start]) {
+                continue;
+            }
+            this.closed[start] = true;
+            this.fill[0] = start;
+            int length = 1;
+            int faces = 0;
+
+            for (int i = 0; i < length; i++) {
+                int current = this.fill[i];
+                int x = current % SIZE;
+                int z = (current / SIZE) % SIZE;
+                int y = current / (SIZE * SIZE);
+
+                faces |= facesOf(x, y, z);
+
+                for (int face = 0; face < FACES; face++) {
+                    int nx = x;
+                    int ny = y;
+                    int nz = z;
+                    switch (face) {
+                        case BlockVertices.NEGATIVE_X ->
+                            nx--;
+                        case BlockVertices.POSITIVE_X ->
+                            nx++;
+                        case BlockVertices.NEGATIVE_Y ->
+                            ny--;
+                        case BlockVertices.POSITIVE_Y ->
+                            ny++;
+                        case BlockVertices.NEGATIVE_Z ->
+                            nz--;
+                        case BlockVertices.POSITIVE_Z ->
+                            nz++;
+                    }
+                    if (nx < 0 || nx >= SIZE || ny < 0 || ny >= SIZE || nz < 0 || nz >= SIZE) {
+                        continue;
+                    }
+                    int next = index(nx, ny, nz);
+                    if (!this.closed[next]) {
+                        this.closed[next] = true;
+                        this.fill[length++] = next;
+                    }
+                }
+            }
+
+            for (int from = 0; from < FACES; from++) {
+                if ((faces & (1 << from)) == 0) {
+                    continue;
+                }
+                for (int to = 0; to < FACES; to++) {
+                    if ((faces & (1 << to)) != 0) {
+                        connectivity |= 1L << ((from * FACES) + to);
+                    }
+                }
+            }
+            if (connectivity == ALL_CONNECTED) {
+                break;
+            }
+        }
+        return connectivity;
+    }
+
+    private void ensureCapacity(int nodes) {
+        if (this.visited.length < nodes) {
+            this.visited = new boolean[nodes];
+            this.queueNode = new int[nodes];
+            this.queueFrom = new int[nodes];
+            this.queueDirections = new int[nodes];
+        }
+    }
+
+    //breadth first walk from the camera section, connectivity is indexed by ((x + (z * size)) * sections) + y
+    public int walk(int size, int sections, long[] connectivity, int startX, int startY, int startZ, int[] visibleSections) {
+        int nodes = size * size * sections;
+        ensureCapacity(nodes);
+        Arrays.fill(this.visited, 0, nodes, false);
+        Arrays.fill(visibleSections, 0, size * size, 0);
+
+        int start = ((startX + (startZ * size)) * sections) + startY;
+        this.visited[start] = true;
+        this.queueNode[0] = start;
+        this.queueFrom[0] = -1;
+        this.queueDirections[0] = 0;
+        int length = 1;
+
+        for (int i = 0; i < length; i++) {
+            int node = this.queueNode[i];
+            int from = this.queueFrom[i];
+            int directions = this.queueDirections[i];
+
+            int column = node / sections;
+            int y = node % sections;
+            int x = column % size;
+            int z = column / size;
+
+            visibleSections[column] |= 1 << y;
+
+            for (int to = 0; to < FACES; to++) {
+                //never walk back towards the camera, the view through a section only goes one way
+                if ((directions & (1 << opposite(to))) != 0) {
+                    continue;
+                }
+                if (from != -1 && !isConnected(connectivity[node], from, to)) {
+                    continue;
+                }
+
+                int nx = x;
+                int ny = y;
+                int nz = z;
+                switch (to) {
+                    case BlockVertices.NEGATIVE_X ->
+                        nx--;
+                    case BlockVertices.POSITIVE_X ->
+                        nx++;
+                    case BlockVertices.NEGATIVE_Y ->
+                        ny--;
+                    case BlockVertices.POSITIVE_Y ->
+                        ny++;
+                    case BlockVertices.NEGATIVE_Z ->
+                        nz--;
+                    case BlockVertices.POSITIVE_Z ->
+                        nz++;
+                }
+                if (nx < 0 || nx >= size || ny < 0 || ny >= sections || nz < 0 || nz >= size) {
+                    continue;
+                }
+
+                int next = ((nx + (nz * size)) * sections) + ny;
+                if (this.visited[next]) {
+                    continue;
+                }
+                this.visited[next] = true;
+                this.queueNode[length] = next;
+                this.queueFrom[length] = opposite(to);
+                this.queueDirections[length] = directions | (1 << to);
+                length++;
+            }
+        }
+
+        return length;
+    }
+
+}
@@ -1,6 +1,11 @@
 package cientistavuador.leitecraft;
 
+import java.nio.ByteOrder;
 import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.joml.Vector3f;
+import org.lwjgl.system.MemoryUtil;
 
 /**
  *
@@ -8,98 +13,222 @@ import java.util.Arrays;
  */
 public class VerticesStream {
 
-    public static final int VERTEX_SIZE = 3 + 3 + 2 + 1 + 1 + 1 + 1 + 1;
+    public static final int VERTEX_SIZE = 3;
+    public static final int VERTEX_BYTES = VERTEX_SIZE * Integer.BYTES;
 
-    public static final int XYZ_OFFSET = 0;
-    public static final int NORMAL_XYZ_OFFSET = XYZ_OFFSET + 3;
-    public static final int UV_OFFSET = NORMAL_XYZ_OFFSET + 3;
-    public static final int BLEND_MODE_OFFSET = UV_OFFSET + 2;
-    public static final int ANIMATED_OFFSET = BLEND_MODE_OFFSET + 1;
-    public static final int ANIMATED_FRAMES_OFFSET = ANIMATED_OFFSET + 1;
+    public static final int POSITION_OFFSET = 0;
+    public static final int NORMAL_OFFSET = POSITION_OFFSET + 3;
+    public static final int TILE_UV_OFFSET = NORMAL_OFFSET + 1;
+    public static final int TILE_OFFSET = TILE_UV_OFFSET + 2;
+    public static final int ANIMATED_FRAMES_OFFSET = TILE_OFFSET + 1;
     public static final int AO_OFFSET = ANIMATED_FRAMES_OFFSET + 1;
-    public static final int SHADOW_OFFSET = AO_OFFSET + 1;
-    
-    private float[] vertices = new float[VERTEX_SIZE * 64];
-    private int[] indices = new int[64];
+    public static final int SKY_LIGHT_OFFSET = AO_OFFSET + 1;
+    public static final int BLOCK_LIGHT_OFFSET = SKY_LIGHT_OFFSET + 1;
+    public static final int BLEND_MODE_OFFSET = BLOCK_LIGHT_OFFSET + 1;
 
-    private int verticesIndex = 0;
-    private int indicesIndex = 0;
+    //quads are grouped by the face they point to, the last group holds the ones not aligned to any face
+    public static final int FACES = 6;
+    public static final int UNALIGNED = FACES;
+    public static final int FACE_GROUPS = FACES + 1;
 
-    private int indicesOffset = 0;
+    public static final int MAX_POOLED_STREAMS = 64;
 
-    public VerticesStream() {
+    private static final boolean BIG_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN;
+
+    private static final ConcurrentLinkedQueue<VerticesStream> pool = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger pooled = new AtomicInteger();
 
+    public static VerticesStream acquire() {
+        VerticesStream stream = pool.poll();
+        if (stream == null) {
+            return new VerticesStream();
+        }
+        pooled.decrementAndGet();
+        stream.clear();
+        return stream;
     }
 
-    public int currentIndex() {
-        return this.indicesIndex;
+    public static void release(VerticesStream stream) {
+        if (pooled.incrementAndGet() > MAX_POOLED_STREAMS) {
+            pooled.decrementAndGet();
+            stream.free();
+            return;
+        }
+        pool.offer(stream);
     }
 
-    public int currentOffset() {
-        return this.indicesOffset;
+    private static int pack(int b0, int b1, int b2, int b3) {
+        int packed = (b0 & 0xFF) | ((b1 & 0xFF) << 8) | ((b2 & 0xFF) << 16) | ((b3 & 0xFF) << 24);
+        if (BIG_ENDIAN) {
+            return Integer.reverseBytes(packed);
+        }
+        return packed;
+    }
+
+    public static int unpack(int[] vertices, int vertex, int byteOffset) {
+        int packed = vertices[(vertex * VERTEX_SIZE) + (byteOffset / Integer.BYTES)];
+        if (BIG_ENDIAN) {
+            packed = Integer.reverseBytes(packed);
+        }
+        return (packed >>> ((byteOffset % Integer.BYTES) * 8)) & 0xFF;
     }
 
-    public void offset() {
-        this.indicesOffset = this.verticesIndex / VERTEX_SIZE;
+    private long address;
+    private int capacity;
+
+    private int verticesIndex = 0;
+
+    private int minX = Integer.MAX_VALUE;
+    private int minY = Integer.MAX_VALUE;
+    private int minZ = Integer.MAX_VALUE;
+    private int maxX = Integer.MIN_VALUE;
+    private int maxY = Integer.MIN_VALUE;
+    private int maxZ = Integer.MIN_VALUE;
+
+    //groupByFace scratch, kept with the stream so pooled streams reuse it
+    private int[] faces = new int[0];
+    private final int[] next = new int[FACE_GROUPS];
+    private long sorted = 0;
+    private long sortedCapacity = 0;
+
+    public VerticesStream() {
+        this.capacity = VERTEX_BYTES * 1024;
+        this.address = MemoryUtil.nmemAllocChecked(this.capacity);
     }
 
-    public void zeroOffset() {
-        this.indicesOffset = 0;
+    public long address() {
+        return this.address;
     }
 
     public int amountOfVertices() {
-        return this.verticesIndex / VERTEX_SIZE;
+        return this.verticesIndex / VERTEX_BYTES;
+    }
+
+    public int amountOfQuads() {
+        return amountOfVertices() / QuadIndexBuffer.VERTICES_PER_QUAD;
     }
 
     public void vertex(
-            float x, float y, float z,
-            float normalX, float normalY, float normalZ,
-            float u, float v,
-            int blendMode,
-            float animatedOffset,
+            int x, int y, int z,
+            int normal,
+            int tileU, int tileV,
+            int tile,
             int animatedFrames,
-            float vertexAO,
-            float vertexShadow
+            int aoLevel,
+            int skyLight,
+            int blockLight,
+            int blendMode
     ) {
-        if ((this.verticesIndex + VERTEX_SIZE) > this.vertices.length) {
-            this.vertices = Arrays.copyOf(this.vertices, this.vertices.length * 2);
+        if ((this.verticesIndex + VERTEX_BYTES) > this.capacity) {
+            this.capacity *= 2;
+            this.address = MemoryUtil.nmemReallocChecked(this.address, this.capacity);
         }
-        this.vertices[this.verticesIndex + XYZ_OFFSET + 0] = x;
-        this.vertices[this.verticesIndex + XYZ_OFFSET + 1] = y;
-        this.vertices[this.verticesIndex + XYZ_OFFSET + 2] = z;
+        long vertex = this.address + this.verticesIndex;
+        MemoryUtil.memPutInt(vertex + 0, pack(x, y, z, normal));
+        MemoryUtil.memPutInt(vertex + 4, pack(tileU, tileV, tile, animatedFrames));
+        MemoryUtil.memPutInt(vertex + 8, pack(aoLevel, skyLight, blockLight, blendMode));
+
+        this.verticesIndex += VERTEX_BYTES;
+
+        this.minX = Math.min(this.minX, x);
+        this.minY = Math.min(this.minY, y);
+        this.minZ = Math.min(this.minZ, z);
+        this.maxX = Math.max(this.maxX, x);
+        this.maxY = Math.max(this.maxY, y);
+        this.maxZ = Math.max(this.maxZ, z);
+    }
 
-        this.vertices[this.verticesIndex + NORMAL_XYZ_OFFSET + 0] = normalX;
-        this.vertices[this.verticesIndex + NORMAL_XYZ_OFFSET + 1] = normalY;
-        this.vertices[this.verticesIndex + NORMAL_XYZ_OFFSET + 2] = normalZ;
+    private int faceOf(int quad) {
+        long vertex = this.address + (((long) quad) * QuadIndexBuffer.VERTICES_PER_QUAD * VERTEX_BYTES);
+        int normal = MemoryUtil.memGetByte(vertex + NORMAL_OFFSET) & 0xFF;
+        if (normal >= FACES) {
+            return UNALIGNED;
+        }
 
-        this.vertices[this.verticesIndex + UV_OFFSET + 0] = u;
-        this.vertices[this.verticesIndex + UV_OFFSET + 1] = v;
+        //billboards carry a normal for lighting but are not on the plane of that face
+        int axis = normal / 2;
+        int plane = MemoryUtil.memGetByte(vertex + POSITION_OFFSET + axis) & 0xFF;
+        for (int i = 1; i < QuadIndexBuffer.VERTICES_PER_QUAD; i++) {
+            if ((MemoryUtil.memGetByte(vertex + (((long) i) * VERTEX_BYTES) + POSITION_OFFSET + axis) & 0xFF) != plane) {
+                return UNALIGNED;
+            }
+        }
+        return normal;
+    }
 
-        this.vertices[this.verticesIndex + BLEND_MODE_OFFSET + 0] = blendMode;
-        this.vertices[this.verticesIndex + ANIMATED_OFFSET + 0] = animatedOffset;
-        this.vertices[this.verticesIndex + ANIMATED_FRAMES_OFFSET + 0] = animatedFrames;
-        this.vertices[this.verticesIndex + AO_OFFSET + 0] = vertexAO;
-        this.vertices[this.verticesIndex + SHADOW_OFFSET + 0] = vertexShadow;
+    public void groupByFace(int firstQuad, int amountOfQuads, int[] faceQuads) {
+        Arrays.fill(faceQuads, 0, FACE_GROUPS, 0);
+        if (amountOfQuads == 0) {
+            return;
+        }
 
-        this.verticesIndex += VERTEX_SIZE;
-    }
+        if (this.faces.length < amountOfQuads) {
+            this.faces = new int[Math.max(amountOfQuads, this.faces.length * 2)];
+        }
+        int[] faces = this.faces;
+        for (int i = 0; i < amountOfQuads; i++) {
+            faces[i] = faceOf(firstQuad + i);
+            faceQuads[faces[i]]++;
+        }
 
-    public void indices(int... inds) {
-        if ((this.indicesIndex + inds.length) > this.indices.length) {
-            this.indices = Arrays.copyOf(this.indices, inds.length + this.indices.length * 2);
+        int[] next = this.next;
+        next[0] = 0;
+        for (int i = 1; i < FACE_GROUPS; i++) {
+            next[i] = next[i - 1] + faceQuads[i - 1];
         }
-        for (int i = 0; i < inds.length; i++) {
-            this.indices[this.indicesIndex + i] = inds[i] + this.indicesOffset;
+
+        int quadBytes = QuadIndexBuffer.VERTICES_PER_QUAD * VERTEX_BYTES;
+        long bytes = ((long) amountOfQuads) * quadBytes;
+        if (this.sortedCapacity < bytes) {
+            long capacity = Math.max(bytes, this.sortedCapacity * 2);
+            if (this.sorted != 0) {
+                MemoryUtil.nmemFree(this.sorted);
+                this.sorted = 0;
+                this.sortedCapacity = 0;
+            }
+            this.sorted = MemoryUtil.nmemAllocChecked(capacity);
+            this.sortedCapacity = capacity;
         }
-        this.indicesIndex += inds.length;
+
+        long start = this.address + (((long) firstQuad) * quadBytes);
+        for (int i = 0; i < amountOfQuads; i++) {
+            int to = next[faces[i]]++;
+            MemoryUtil.memCopy(start + (((long) i) * quadBytes), this.sorted + (((long) to) * quadBytes), quadBytes);
+        }
+        MemoryUtil.memCopy(this.sorted, start, bytes);
+    }
+
+    public void resetBounds() {
+        this.minX = Integer.MAX_VALUE;
+        this.minY = Integer.MAX_VALUE;
+        this.minZ = Integer.MAX_VALUE;
+        this.maxX = Integer.MIN_VALUE;
+        this.maxY = Integer.MIN_VALUE;
+        this.maxZ = Integer.MIN_VALUE;
+    }
+
+    public void bounds(Vector3f min, Vector3f max) {
+        if (this.minX > this.maxX) {
+            return;
+        }
+        min.set(Math.min(min.x(), this.minX), Math.min(min.y(), this.minY), Math.min(min.z(), this.minZ));
+        max.set(Math.max(max.x(), this.maxX), Math.max(max.y(), this.maxY), Math.max(max.z(), this.maxZ));
     }
-    
-    public float[] copyVertices() {
-        return Arrays.copyOf(this.vertices, this.verticesIndex);
+
+    public void clear() {
+        this.verticesIndex = 0;
+        resetBounds();
     }
 
-    public int[] copyIndices() {
-        return Arrays.copyOf(this.indices, this.indicesIndex);
+    public void free() {
+        MemoryUtil.nmemFree(this.address);
+        this.address = 0;
+        if (this.sorted != 0) {
+            MemoryUtil.nmemFree(this.sorted);
+            this.sorted = 0;
+            this.sortedCapacity = 0;
+        }
+        this.faces = new int[0];
     }
 
 }
@@ -26,11 +26,17 @@ public class World {
 
     private final Map<Long, Chunk> chunks = new HashMap<>();
     private final Map<Long, GeneratingChunk> chunksGenerating = new HashMap<>();
+    private final WorldLighting lighting = new WorldLighting(this);
 
     public World() {
 
     }
     
+    private static void generateChunk(Chunk chunk) {
+        ChunkGenerator.generateChunk(chunk);
+        chunk.setLighting(ChunkLighting.computeLighting(chunk));
+    }
+    
     private long chunkId(int x, int z) {
         return (Integer.toUnsignedLong(x) << 32) | Integer.toUnsignedLong(z);
     }
@@ -41,6 +47,10 @@ public class World {
         Chunk chunkAt = this.chunks.get(id);
         if (chunkAt == null) {
             GeneratingChunk generating = this.chunksGenerating.get(id);
+            if (generating != null && generating.task.isCancelled()) {
+                this.chunksGenerating.remove(id);
+                generating = null;
+            }
             if (generating != null && (generating.task.isDone() || forced)) {
                 try {
                     generating.task.get();
@@ -50,10 +60,12 @@ public class World {
                 chunkAt = generating.chunk;
                 this.chunksGenerating.remove(id);
                 this.chunks.put(id, chunkAt);
+                this.lighting.chunkLoaded(chunkAt);
             } else if (generating == null && forced) {
                 chunkAt = new Chunk(x, z);
-                ChunkGenerator.generateChunk(chunkAt);
+                generateChunk(chunkAt);
                 this.chunks.put(id, chunkAt);
+                this.lighting.chunkLoaded(chunkAt);
             }
         }
 
@@ -68,19 +80,39 @@ public class World {
         return getChunk(x, z, false);
     }
     
-    public Block getBlock(int x, int y, int z, boolean force) {
+    public Chunk getLoadedChunk(int x, int z) {
+        return this.chunks.get(chunkId(x, z));
+    }
+    
+    public int getBlockId(int x, int y, int z, boolean force) {
         int chunkX = (int) Math.floor(((double) x) / Chunk.CHUNK_SIZE);
         int chunkZ = (int) Math.floor(((double) z) / Chunk.CHUNK_SIZE);
 
         Chunk chunk = getChunk(chunkX, chunkZ, force);
         if (chunk == null) {
-            return Blocks.AIR;
+            return 0;
         }
         
         int localX = x - (chunkX * Chunk.CHUNK_SIZE);
         int localZ = z - (chunkZ * Chunk.CHUNK_SIZE);
 
-        return chunk.getBlock(localX, y, localZ);
+        return chunk.getBlockId(localX, y, localZ);
+    }
+    
+    public int getSurfaceHeight(int x, int z, boolean force) {
+        int chunkX = (int) Math.floor(((double) x) / Chunk.CHUNK_SIZE);
+        int chunkZ = (int) Math.floor(((double) z) / Chunk.CHUNK_SIZE);
+
+        Chunk chunk = getChunk(chunkX, chunkZ, force);
+        if (chunk == null) {
+            return 0;
+        }
+        
+        return chunk.getSurfaceHeight(x - (chunkX * Chunk.CHUNK_SIZE), z - (chunkZ * Chunk.CHUNK_SIZE));
+    }
+    
+    public Block getBlock(int x, int y, int z, boolean force) {
+        return Blocks.getBlock(getBlockId(x, y, z, force));
     }
     
     public Block getBlock(int x, int y, int z) {
@@ -107,7 +139,9 @@ public class World {
         int localX = x - (chunkX * Chunk.CHUNK_SIZE);
         int localZ = z - (chunkZ * Chunk.CHUNK_SIZE);
         
+        int oldId = chunk.getBlockId(localX, y, localZ);
         chunk.setBlock(localX, y, localZ, block);
+        this.lighting.blockChanged(x, y, z, oldId, chunk.getBlockId(localX, y, localZ));
         
         return true;
     }
@@ -120,6 +154,18 @@ public class World {
         return setBlock(block, x, y, z, false);
     }
     
+    public int amountOfChunks() {
+        return this.chunks.size();
+    }
+    
+    public long getMemoryUsage() {
+        long usage = 0;
+        for (Chunk c:this.chunks.values()) {
+            usage += c.getMemoryUsage();
+        }
+        return usage;
+    }
+    
     public boolean isGenerating(int x, int z) {
         return this.chunksGenerating.get(chunkId(x, z)) != null;
     }
@@ -132,8 +178,8 @@ public class World {
 
         if (!isGenerating(x, z)) {
             Chunk toGenerate = new Chunk(x, z);
-            GeneratingChunk generating = new GeneratingChunk(toGenerate, Main.THREADS.submit(() -> {
-                ChunkGenerator.generateChunk(toGenerate);
+            GeneratingChunk generating = new GeneratingChunk(toGenerate, Main.THREADS.submit(x, z, () -> {
+                generateChunk(toGenerate);
             }));
             this.chunksGenerating.put(chunkId(x, z), generating);
         }
@@ -148,6 +194,7 @@ public class World {
         }
         
         this.chunks.clear();
+        this.chunksGenerating.values().removeIf((e) -> e.task.isCancelled());
         
         generated.sort((o1, o2) -> {
             int o1x = o1.getChunkX() - chunkCenterX;
@@ -1,10 +1,9 @@
 package cientistavuador.leitecraft;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 import org.joml.Vector2i;
-import static org.lwjgl.opengl.GL20.*;
 
 /**
  *
@@ -12,6 +11,22 @@ import static org.lwjgl.opengl.GL20.*;
  */
 public class WorldCamera {
 
+    public static final int MAX_VIEW_DISTANCE = 32;
+    public static final int LOD_HYSTERESIS = 1;
+
+    //chunks up to this distance are meshed at full resolution, every ring this wide after it halves the resolution
+    public static volatile int LOD_RADIUS = 6;
+
+    public static volatile boolean CAVE_CULLING = true;
+
+    public static int lodForDistance(int distance) {
+        int radius = Math.max(LOD_RADIUS, 1);
+        if (distance <= radius) {
+            return 0;
+        }
+        return Math.min((distance - 1) / radius, LodMesher.MAX_LOD);
+    }
+
     private final World world;
 
     private boolean updateViewDistance = false;
@@ -30,6 +45,13 @@ public class WorldCamera {
     private int cameraChunkX = 0;
     private int cameraChunkZ = 0;
 
+    private long avoidedRemeshes = 0;
+
+    private final SectionVisibility sectionVisibility = new SectionVisibility();
+    private long[] connectivity = new long[0];
+    private int[] visibleSections = new int[0];
+    private int amountOfVisibleSections = 0;
+
     public WorldCamera(World world) {
         this.world = world;
     }
@@ -91,18 +113,92 @@ public class WorldCamera {
         this.chunks[localX + (localZ * this.viewDistanceSize)] = chunk;
     }
 
-    public void signalRegenerateMesh(int chunkX, int chunkZ) {
+    public int amountOfChunksAtLod(int lod) {
+        int amount = 0;
+        for (RenderableChunk c : this.chunks) {
+            if (c != null && c.getLod() == lod) {
+                amount++;
+            }
+        }
+        return amount;
+    }
+
+    public long getAvoidedRemeshes() {
+        return avoidedRemeshes;
+    }
+
+    public int getAmountOfVisibleSections() {
+        return amountOfVisibleSections;
+    }
+
+    public void updateVisibleSections(double camY) {
+        int cameraSectionY = (int) Math.floor(camY / ChunkSection.SECTION_SIZE);
+
+        //nothing can hide anything from a camera outside of the world
+        if (!CAVE_CULLING || cameraSectionY < 0 || cameraSectionY >= Chunk.SECTIONS) {
+            for (RenderableChunk c : this.chunks) {
+                if (c != null) {
+                    c.setVisibleSections(RenderableChunk.ALL_SECTIONS);
+                }
+            }
+            this.amountOfVisibleSections = this.chunks.length * Chunk.SECTIONS;
+            return;
+        }
+
+        if (this.visibleSections.length != this.chunks.length) {
+            this.connectivity = new long[this.chunks.length * Chunk.SECTIONS];
+            this.visibleSections = new int[this.chunks.length];
+        }
+
+        for (int i = 0; i < this.chunks.length; i++) {
+            RenderableChunk c = this.chunks[i];
+            for (int sectionY = 0; sectionY < Chunk.SECTIONS; sectionY++) {
+                this.connectivity[(i * Chunk.SECTIONS) + sectionY] = (c == null ? SectionVisibility.ALL_CONNECTED : c.getSectionConnectivity(sectionY));
+            }
+        }
+
+        this.amountOfVisibleSections = this.sectionVisibility.walk(
+                this.viewDistanceSize, Chunk.SECTIONS, this.connectivity,
+                this.viewDistance, cameraSectionY, this.viewDistance,
+                this.visibleSections
+        );
+
+        for (int i = 0; i < this.chunks.length; i++) {
+            RenderableChunk c = this.chunks[i];
+            if (c != null) {
+                c.setVisibleSections(this.visibleSections[i]);
+            }
+        }
+    }
+
+    public void signalRegenerateBlock(int chunkX, int chunkZ, int x, int y, int z, boolean affectsNeighbors) {
+        int signalled = 0;
         for (int xOffset = -1; xOffset <= 1; xOffset++) {
+            if ((xOffset == -1 && x != 0) || (xOffset == 1 && x != Chunk.CHUNK_SIZE - 1)) {
+                continue;
+            }
             for (int zOffset = -1; zOffset <= 1; zOffset++) {
-                int cx = (chunkX + xOffset) - this.cameraChunkX;
-                int cz = (chunkZ + zOffset) - this.cameraChunkZ;
+                if ((zOffset == -1 && z != 0) || (zOffset == 1 && z != Chunk.CHUNK_SIZE - 1)) {
+                    continue;
+                }
+                boolean center = xOffset == 0 && zOffset == 0;
+                if (!center && !affectsNeighbors) {
+                    continue;
+                }
 
-                RenderableChunk at = getRenderableChunk(cx, cz);
+                int sections = RenderableChunk.sectionsAround(y);
+                if (!affectsNeighbors) {
+                    sections = 1 << (y >> 4);
+                }
+
+                RenderableChunk at = getRenderableChunk((chunkX + xOffset) - this.cameraChunkX, (chunkZ + zOffset) - this.cameraChunkZ);
                 if (at != null) {
-                    at.signalRegenerateMesh();
+                    at.signalRegenerateSections(sections);
+                    signalled += Integer.bitCount(sections);
                 }
             }
         }
+        this.avoidedRemeshes += (9 * Chunk.SECTIONS) - signalled;
     }
 
     public Chunk getLocalChunk(int localX, int localZ) {
@@ -113,16 +209,35 @@ public class WorldCamera {
         return e.getChunk();
     }
 
-    public void update(double camX, double camZ) {
+    private static long chunkId(int x, int z) {
+        return (Integer.toUnsignedLong(x) << 32) | Integer.toUnsignedLong(z);
+    }
+
+    private void updateLod(RenderableChunk renderable, int distance) {
+        if (!renderable.hasMesh() && !renderable.isReadyForUpdate()) {
+            renderable.setLod(lodForDistance(distance));
+            return;
+        }
+        //only switch once the chunk is well past the boundary, so that it does not flip back and forth on it
+        int coarser = lodForDistance(distance - LOD_HYSTERESIS);
+        int finer = lodForDistance(distance + LOD_HYSTERESIS);
+        if (coarser > renderable.getLod()) {
+            renderable.setLod(coarser);
+        } else if (finer < renderable.getLod()) {
+            renderable.setLod(finer);
+        }
+    }
+
+    public void update(double camX, double camZ, float frontX, float frontZ) {
         this.cameraChunkX = (int) (Math.floor(camX / Chunk.CHUNK_SIZE));
         this.cameraChunkZ = (int) (Math.floor(camZ / Chunk.CHUNK_SIZE));
 
         this.world.performCleanup(this.cameraChunkX, this.cameraChunkZ, (this.viewDistanceSize * this.viewDistanceSize) * 4);
 
-        List<RenderableChunk> existingChunks = new ArrayList<>();
+        Map<Long, RenderableChunk> existingChunks = new HashMap<>();
         for (RenderableChunk c : this.chunks) {
             if (c != null) {
-                existingChunks.add(c);
+                existingChunks.put(chunkId(c.getChunk().getChunkX(), c.getChunk().getChunkZ()), c);
             }
         }
 
@@ -139,24 +254,17 @@ public class WorldCamera {
             updateChunkPositions();
         }
 
+        Main.THREADS.setCamera(this.cameraChunkX, this.cameraChunkZ, frontX, frontZ, this.viewDistance + 1);
+
         for (Vector2i local : this.chunksPositions) {
             int localX = local.x();
             int localZ = local.y();
             int globalX = localX + this.cameraChunkX;
             int globalZ = localZ + this.cameraChunkZ;
 
-            RenderableChunk existing = null;
-            for (RenderableChunk c : existingChunks) {
-                Chunk chunk = c.getChunk();
-                if (chunk.getChunkX() == globalX && chunk.getChunkZ() == globalZ) {
-                    existing = c;
-                    break;
-                }
-            }
+            RenderableChunk existing = existingChunks.remove(chunkId(globalX, globalZ));
 
-            if (existing != null) {
-                existingChunks.remove(existing);
-            } else {
+            if (existing == null) {
                 Chunk chunkAt = this.world.scheduleChunk(globalX, globalZ);
                 if (chunkAt != null) {
                     existing = new RenderableChunk(this, chunkAt);
@@ -167,16 +275,8 @@ public class WorldCamera {
             setRenderableChunk(localX, localZ, existing);
         }
 
-        for (RenderableChunk toDelete : existingChunks) {
-            if (toDelete.getVBO() != 0) {
-                glDeleteBuffers(toDelete.getVBO());
-            }
-            if (toDelete.getEBO() != 0) {
-                glDeleteBuffers(toDelete.getEBO());
-            }
-            if (toDelete.getQueryObject() != 0) {
-                glDeleteQueries(toDelete.getQueryObject());
-            }
+        for (RenderableChunk toDelete : existingChunks.values()) {
+            toDelete.delete();
             toDelete.getChunk().setRenderableChunk(null);
         }
 
@@ -203,6 +303,8 @@ public class WorldCamera {
             RenderableChunk renderable = getRenderableChunk(localX, localZ);
 
             if (renderable != null) {
+                updateLod(renderable, Math.max(Math.abs(localX), Math.abs(localZ)));
+
                 matrix.setChunk(0, 0, renderable.getChunk());
 
                 matrix.setChunk(-1, 0, getLocalChunk(localX - 1, localZ));
@@ -0,0 +1,306 @@
+package cientistavuador.leitecraft;
+
+import java.util.Arrays;
+
+/**
+ *
+ * @author Cien
+ */
+public class WorldLighting {
+
+    public static final int CHUNKS_RADIUS = 2;
+    public static final int CHUNKS_SIZE = (CHUNKS_RADIUS * 2) + 1;
+    public static final int AREA_SIZE = CHUNKS_SIZE * Chunk.CHUNK_SIZE;
+
+    private static final int X_MASK = 0x7F;
+    private static final int Y_SHIFT = 7;
+    private static final int Y_MASK = 0x7F;
+    private static final int Z_SHIFT = 14;
+    private static final int Z_MASK = 0x7F;
+    private static final int LEVEL_SHIFT = 21;
+
+    private final World world;
+
+    private final Chunk[] chunks = new Chunk[CHUNKS_SIZE * CHUNKS_SIZE];
+    private final int[] changed = new int[CHUNKS_SIZE * CHUNKS_SIZE];
+    private int originX = 0;
+    private int originZ = 0;
+
+    private boolean skyChannel = true;
+
+    private int[] removeQueue = new int[1024];
+    private int removeLength = 0;
+    private int[] addQueue = new int[1024];
+    private int addLength = 0;
+
+    public WorldLighting(World world) {
+        this.world = world;
+    }
+
+    private static int pack(int x, int y, int z, int lightLevel) {
+        return x | (y << Y_SHIFT) | (z << Z_SHIFT) | (lightLevel << LEVEL_SHIFT);
+    }
+
+    private void pushRemove(int x, int y, int z, int lightLevel) {
+        if (this.removeLength == this.removeQueue.length) {
+            this.removeQueue = Arrays.copyOf(this.removeQueue, this.removeQueue.length * 2);
+        }
+        this.removeQueue[this.removeLength++] = pack(x, y, z, lightLevel);
+    }
+
+    private void pushAdd(int x, int y, int z) {
+        if (this.addLength == this.addQueue.length) {
+            this.addQueue = Arrays.copyOf(this.addQueue, this.addQueue.length * 2);
+        }
+        this.addQueue[this.addLength++] = pack(x, y, z, 0);
+    }
+
+    private Chunk chunkAt(int x, int z) {
+        if (x < 0 || x >= AREA_SIZE || z < 0 || z >= AREA_SIZE) {
+            return null;
+        }
+        return this.chunks[(x >> 4) + ((z >> 4) * CHUNKS_SIZE)];
+    }
+
+    private int getBlockId(Chunk chunk, int x, int y, int z) {
+        return chunk.getBlockId(x & 15, y, z & 15);
+    }
+
+    private int getLightLevel(Chunk chunk, int x, int y, int z) {
+        if (this.skyChannel) {
+            return chunk.getSkyLight(x & 15, y, z & 15);
+        }
+        return chunk.getBlockLight(x & 15, y, z & 15);
+    }
+
+    private void setLightLevel(Chunk chunk, int x, int y, int z, int lightLevel) {
+        if (this.skyChannel) {
+            chunk.setSkyLight(x & 15, y, z & 15, lightLevel);
+        } else {
+            chunk.setBlockLight(x & 15, y, z & 15, lightLevel);
+        }
+        markChanged(x, y, z);
+    }
+
+    private void markChanged(int x, int y, int z) {
+        int sections = RenderableChunk.sectionsAround(y);
+        int lastX = Math.min(x + 1, AREA_SIZE - 1) >> 4;
+        int lastZ = Math.min(z + 1, AREA_SIZE - 1) >> 4;
+        for (int chunkZ = Math.max(z - 1, 0) >> 4; chunkZ <= lastZ; chunkZ++) {
+            for (int chunkX = Math.max(x - 1, 0) >> 4; chunkX <= lastX; chunkX++) {
+                this.changed[chunkX + (chunkZ * CHUNKS_SIZE)] |= sections;
+            }
+        }
+    }
+
+    private int baseLightLevel(int id, int y) {
+        if (!this.skyChannel) {
+            return Blocks.getLightEmission(id);
+        }
+        if (!Blocks.isSolid(id) && (y == 0 || y == Chunk.CHUNK_HEIGHT - 1)) {
+            return Chunk.MAX_LIGHT_LEVEL - 1;
+        }
+        return 0;
+    }
+
+    private boolean isSkyColumn(Chunk chunk, int x, int y, int z) {
+        return chunk.getSolidHeight(x & 15, z & 15) <= y + 1;
+    }
+
+    private void removeLight(Chunk chunk, int x, int y, int z) {
+        int lightLevel = getLightLevel(chunk, x, y, z);
+        int base = baseLightLevel(getBlockId(chunk, x, y, z), y);
+        setLightLevel(chunk, x, y, z, base);
+        pushRemove(x, y, z, lightLevel);
+        if (base >= 2) {
+            pushAdd(x, y, z);
+        }
+    }
+
+    private void removeNeighbor(int x, int y, int z, int lightLevel) {
+        if (y < 0 || y >= Chunk.CHUNK_HEIGHT) {
+            return;
+        }
+        Chunk chunk = chunkAt(x, z);
+        if (chunk == null) {
+            return;
+        }
+        int neighborLevel = getLightLevel(chunk, x, y, z);
+        int base = baseLightLevel(getBlockId(chunk, x, y, z), y);
+        if (neighborLevel < lightLevel && neighborLevel > base) {
+            setLightLevel(chunk, x, y, z, base);
+            pushRemove(x, y, z, neighborLevel);
+            if (base >= 2) {
+                pushAdd(x, y, z);
+            }
+        } else if (neighborLevel >= 2) {
+            pushAdd(x, y, z);
+        }
+    }
+
+    private void propagateRemoval() {
+        for (int i = 0; i < this.removeLength; i++) {
+            int entry = this.removeQueue[i];
+            int x = entry & X_MASK;
+            int y = (entry >>> Y_SHIFT) & Y_MASK;
+            int z = (entry >>> Z_SHIFT) & Z_MASK;
+            int lightLevel = entry >>> LEVEL_SHIFT;
+
+            removeNeighbor(x - 1, y, z, lightLevel);
+            removeNeighbor(x + 1, y, z, lightLevel);
+            removeNeighbor(x, y - 1, z, lightLevel);
+            removeNeighbor(x, y + 1, z, lightLevel);
+            removeNeighbor(x, y, z - 1, lightLevel);
+            removeNeighbor(x, y, z + 1, lightLevel);
+        }
+        this.removeLength = 0;
+    }
+
+    private void addNeighbor(int x, int y, int z, int lightLevel) {
+        if (y < 0 || y >= Chunk.CHUNK_HEIGHT) {
+            return;
+        }
+        Chunk chunk = chunkAt(x, z);
+        if (chunk == null) {
+            return;
+        }
+        if (Blocks.isSolid(getBlockId(chunk, x, y, z))) {
+            return;
+        }
+        if (getLightLevel(chunk, x, y, z) < lightLevel - 1) {
+            setLightLevel(chunk, x, y, z, lightLevel - 1);
+            if (lightLevel - 1 >= 2) {
+                pushAdd(x, y, z);
+            }
+        }
+    }
+
+    private void propagateAddition() {
+        for (int i = 0; i < this.addLength; i++) {
+            int entry = this.addQueue[i];
+            int x = entry & X_MASK;
+            int y = (entry >>> Y_SHIFT) & Y_MASK;
+            int z = (entry >>> Z_SHIFT) & Z_MASK;
+
+            int lightLevel = getLightLevel(chunkAt(x, z), x, y, z);
+            if (lightLevel < 2) {
+                continue;
+            }
+
+            addNeighbor(x - 1, y, z, lightLevel);
+            addNeighbor(x + 1, y, z, lightLevel);
+            addNeighbor(x, y - 1, z, lightLevel);
+            addNeighbor(x, y + 1, z, lightLevel);
+            addNeighbor(x, y, z - 1, lightLevel);
+            addNeighbor(x, y, z + 1, lightLevel);
+        }
+        this.addLength = 0;
+    }
+
+    private void loadChunks(int chunkX, int chunkZ) {
+        this.originX = (chunkX - CHUNKS_RADIUS) * Chunk.CHUNK_SIZE;
+        this.originZ = (chunkZ - CHUNKS_RADIUS) * Chunk.CHUNK_SIZE;
+
+        for (int z = 0; z < CHUNKS_SIZE; z++) {
+            for (int x = 0; x < CHUNKS_SIZE; x++) {
+                int offsetX = x - CHUNKS_RADIUS;
+                int offsetZ = z - CHUNKS_RADIUS;
+                this.chunks[x + (z * CHUNKS_SIZE)] = this.world.getLoadedChunk(chunkX + offsetX, chunkZ + offsetZ);
+                this.changed[x + (z * CHUNKS_SIZE)] = 0;
+            }
+        }
+    }
+
+    private void signalChangedChunks() {
+        for (int i = 0; i < this.chunks.length; i++) {
+            Chunk chunk = this.chunks[i];
+            if (chunk != null && this.changed[i] != 0 && chunk.getRenderableChunk() != null) {
+                chunk.getRenderableChunk().signalRegenerateSections(this.changed[i]);
+            }
+            this.chunks[i] = null;
+        }
+    }
+
+    public void blockChanged(int blockX, int blockY, int blockZ, int oldId, int newId) {
+        boolean oldSolid = Blocks.isSolid(oldId);
+        boolean newSolid = Blocks.isSolid(newId);
+        if (oldSolid == newSolid && Blocks.getLightEmission(oldId) == Blocks.getLightEmission(newId)) {
+            return;
+        }
+
+        int chunkX = Math.floorDiv(blockX, Chunk.CHUNK_SIZE);
+        int chunkZ = Math.floorDiv(blockZ, Chunk.CHUNK_SIZE);
+
+        loadChunks(chunkX, chunkZ);
+
+        int x = blockX - this.originX;
+        int y = blockY;
+        int z = blockZ - this.originZ;
+        Chunk chunk = chunkAt(x, z);
+
+        if (oldSolid != newSolid) {
+            this.skyChannel = true;
+            if (isSkyColumn(chunk, x, y, z)) {
+                int bottom = y;
+                while (bottom > 0 && !Blocks.isSolid(getBlockId(chunk, x, bottom - 1, z))) {
+                    bottom--;
+                }
+                for (int i = y; i >= bottom; i--) {
+                    if (newSolid) {
+                        removeLight(chunk, x, i, z);
+                    } else {
+                        setLightLevel(chunk, x, i, z, Chunk.MAX_LIGHT_LEVEL);
+                        pushAdd(x, i, z);
+                    }
+                }
+            } else {
+                removeLight(chunk, x, y, z);
+            }
+            propagateRemoval();
+            propagateAddition();
+        }
+
+        this.skyChannel = false;
+        removeLight(chunk, x, y, z);
+        propagateRemoval();
+        propagateAddition();
+
+        signalChangedChunks();
+    }
+
+    private void exchangeBorder(int x, int z, int neighborX, int neighborZ) {
+        Chunk chunk = chunkAt(x, z);
+        Chunk neighbor = chunkAt(neighborX, neighborZ);
+        if (neighbor == null) {
+            return;
+        }
+        for (int y = 0; y < Chunk.CHUNK_HEIGHT; y++) {
+            if (getLightLevel(chunk, x, y, z) >= 2) {
+                pushAdd(x, y, z);
+            }
+            if (getLightLevel(neighbor, neighborX, y, neighborZ) >= 2) {
+                pushAdd(neighborX, y, neighborZ);
+            }
+        }
+    }
+
+    public void chunkLoaded(Chunk chunk) {
+        loadChunks(chunk.getChunkX(), chunk.getChunkZ());
+
+        int start = CHUNKS_RADIUS * Chunk.CHUNK_SIZE;
+        int end = start + Chunk.CHUNK_SIZE - 1;
+        for (int channel = 0; channel < 2; channel++) {
+            this.skyChannel = (channel == 0);
+            for (int i = start; i <= end; i++) {
+                exchangeBorder(start, i, start - 1, i);
+                exchangeBorder(end, i, end + 1, i);
+                exchangeBorder(i, start, i, start - 1);
+                exchangeBorder(i, end, i, end + 1);
+            }
+            propagateAddition();
+        }
+
+        signalChangedChunks();
+    }
+
+}
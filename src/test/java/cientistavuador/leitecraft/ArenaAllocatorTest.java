@@ -0,0 +1,215 @@
+package cientistavuador.leitecraft;
+
+import cientistavuador.leitecraft.ArenaAllocator.Allocation;
+import cientistavuador.leitecraft.ArenaAllocator.Move;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author Cien
+ */
+public class ArenaAllocatorTest {
+
+    //owner of every unit of the arena, -1 if free
+    private static int[] owners(ArenaAllocator arena, List<Allocation> live) {
+        int[] owners = new int[arena.getCapacity()];
+        Arrays.fill(owners, -1);
+        for (int i = 0; i < live.size(); i++) {
+            Allocation allocation = live.get(i);
+            for (int j = allocation.getOffset(); j < allocation.getOffset() + allocation.getSize(); j++) {
+                assertEquals(-1, owners[j], "allocations overlap at " + j);
+                owners[j] = i;
+            }
+        }
+        return owners;
+    }
+
+    private static void assertStats(ArenaAllocator arena, List<Allocation> live) {
+        int[] owners = owners(arena, live);
+
+        int used = 0;
+        int freeBlocks = 0;
+        int largestFreeBlock = 0;
+        int run = 0;
+        for (int i = 0; i < owners.length; i++) {
+            if (owners[i] != -1) {
+                used++;
+                run = 0;
+                continue;
+            }
+            if (run == 0) {
+                freeBlocks++;
+            }
+            run++;
+            largestFreeBlock = Math.max(largestFreeBlock, run);
+        }
+        int free = owners.length - used;
+
+        assertEquals(live.size(), arena.getAllocations());
+        assertEquals(used, arena.getUsed());
+        assertEquals(free, arena.getFree());
+        assertEquals(freeBlocks, arena.getFreeBlocks());
+        assertEquals(largestFreeBlock, arena.getLargestFreeBlock());
+        assertEquals((free == 0 ? 0f : 1f - (((float) largestFreeBlock) / free)), arena.getFragmentation(), 0.0001f);
+    }
+
+    @Test
+    public void freeCoalescesNeighbors() {
+        ArenaAllocator arena = new ArenaAllocator(100);
+        Allocation a = arena.allocate(10);
+        Allocation b = arena.allocate(20);
+        Allocation c = arena.allocate(30);
+        assertEquals(0, a.getOffset());
+        assertEquals(10, b.getOffset());
+        assertEquals(30, c.getOffset());
+        assertEquals(1, arena.getFreeBlocks());
+
+        arena.free(a);
+        assertTrue(a.isFreed());
+        assertEquals(2, arena.getFreeBlocks());
+
+        //merges with the free tail
+        arena.free(c);
+        assertEquals(2, arena.getFreeBlocks());
+        assertEquals(70, arena.getLargestFreeBlock());
+
+        //merges with both sides
+        arena.free(b);
+        assertEquals(1, arena.getFreeBlocks());
+        assertEquals(100, arena.getLargestFreeBlock());
+        assertEquals(0, arena.getUsed());
+        assertEquals(0, arena.getAllocations());
+        assertEquals(0f, arena.getFragmentation());
+
+        assertEquals(0, arena.allocate(100).getOffset());
+    }
+
+    @Test
+    public void freeRejectsForeignAllocations() {
+        ArenaAllocator arena = new ArenaAllocator(100);
+        ArenaAllocator other = new ArenaAllocator(100);
+        Allocation a = arena.allocate(10);
+        other.allocate(10);
+
+        assertThrows(RuntimeException.class, () -> other.free(a));
+        arena.free(a);
+        assertThrows(RuntimeException.class, () -> arena.free(a));
+    }
+
+    @Test
+    public void bestFitPicksSmallestBlock() {
+        ArenaAllocator arena = new ArenaAllocator(100);
+        Allocation a = arena.allocate(10);
+        arena.allocate(5);
+        Allocation b = arena.allocate(30);
+        arena.allocate(5);
+        Allocation c = arena.allocate(20);
+        arena.allocate(5);
+        arena.free(a);
+        arena.free(b);
+        arena.free(c);
+
+        //free blocks: 10 at 0, 30 at 15, 20 at 50 and 25 at 75
+        assertEquals(4, arena.getFreeBlocks());
+        assertEquals(50, arena.allocate(18).getOffset());
+        assertEquals(75, arena.allocate(25).getOffset());
+        assertEquals(0, arena.allocate(9).getOffset());
+        assertEquals(15, arena.allocate(30).getOffset());
+        assertNull(arena.allocate(3));
+        assertEquals(68, arena.allocate(2).getOffset());
+    }
+
+    @Test
+    public void relocatePreservesSizesAndOrder() {
+        Random random = new Random(1234);
+        ArenaAllocator arena = new ArenaAllocator(4096);
+        List<Allocation> live = new ArrayList<>();
+
+        for (int i = 0; i < 500; i++) {
+            if (!live.isEmpty() && random.nextInt(3) == 0) {
+                arena.free(live.remove(random.nextInt(live.size())));
+                continue;
+            }
+            Allocation allocation = arena.allocate(random.nextInt(64) + 1);
+            if (allocation != null) {
+                live.add(allocation);
+            }
+        }
+        assertTrue(arena.getFreeBlocks() > 1);
+
+        live.sort((p, q) -> Integer.compare(p.getOffset(), q.getOffset()));
+        int[] oldOffsets = new int[live.size()];
+        int[] oldSizes = new int[live.size()];
+        for (int i = 0; i < live.size(); i++) {
+            oldOffsets[i] = live.get(i).getOffset();
+            oldSizes[i] = live.get(i).getSize();
+        }
+        int[] oldOwners = owners(arena, live);
+
+        int newCapacity = arena.getUsed() + 100;
+        List<Move> moves = arena.relocate(newCapacity);
+
+        assertEquals(newCapacity, arena.getCapacity());
+        assertEquals(1, arena.getFreeBlocks());
+        assertEquals(100, arena.getLargestFreeBlock());
+
+        int offset = 0;
+        for (int i = 0; i < live.size(); i++) {
+            Allocation allocation = live.get(i);
+            assertFalse(allocation.isFreed());
+            assertEquals(oldSizes[i], allocation.getSize());
+            assertEquals(offset, allocation.getOffset());
+            offset += allocation.getSize();
+        }
+        assertStats(arena, live);
+
+        //copying the old contents as the moves say must put every allocation at its new offset
+        int[] newOwners = new int[newCapacity];
+        Arrays.fill(newOwners, -1);
+        for (Move move : moves) {
+            System.arraycopy(oldOwners, move.getFrom(), newOwners, move.getTo(), move.getSize());
+        }
+        assertArrayEquals(owners(arena, live), newOwners);
+
+        for (int i = 0; i < live.size(); i++) {
+            assertTrue(live.get(i).getOffset() <= oldOffsets[i]);
+        }
+    }
+
+    @Test
+    public void relocateRejectsSmallCapacity() {
+        ArenaAllocator arena = new ArenaAllocator(100);
+        arena.allocate(60);
+        assertThrows(RuntimeException.class, () -> arena.relocate(50));
+    }
+
+    @Test
+    public void statsAfterInterleavedAllocateAndFree() {
+        Random random = new Random(98765);
+        ArenaAllocator arena = new ArenaAllocator(2048);
+        List<Allocation> live = new ArrayList<>();
+        assertStats(arena, live);
+
+        for (int i = 0; i < 2000; i++) {
+            if (!live.isEmpty() && random.nextBoolean()) {
+                arena.free(live.remove(random.nextInt(live.size())));
+            } else {
+                int size = random.nextInt(100) + 1;
+                Allocation allocation = arena.allocate(size);
+                if (allocation == null) {
+                    assertTrue(arena.getLargestFreeBlock() < size);
+                } else {
+                    assertEquals(size, allocation.getSize());
+                    live.add(allocation);
+                }
+            }
+            assertStats(arena, live);
+        }
+    }
+
+}
@@ -0,0 +1,47 @@
+package cientistavuador.leitecraft;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * @author Cien
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChunkLightingBenchmark {
+
+    private Chunk chunk;
+
+    @Setup
+    public void setup() {
+        Natives.load();
+
+        this.chunk = new Chunk(0, 0);
+        ChunkGenerator.generateChunk(this.chunk);
+    }
+
+    @Benchmark
+    public byte[][] relaxation() {
+        return RelaxationLighting.computeLighting(this.chunk);
+    }
+
+    @Benchmark
+    public byte[][] floodFill() {
+        return ChunkLighting.computeLighting(this.chunk);
+    }
+
+}
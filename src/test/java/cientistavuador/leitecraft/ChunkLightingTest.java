@@ -0,0 +1,149 @@
+package cientistavuador.leitecraft;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author Cien
+ */
+public class ChunkLightingTest {
+
+    private static final int SIZE = Chunk.CHUNK_SIZE;
+    private static final int HEIGHT = Chunk.CHUNK_HEIGHT;
+
+    @BeforeAll
+    public static void loadNatives() {
+        Natives.load();
+    }
+
+    private static void assertSameLighting(Chunk chunk) {
+        byte[][] expected = RelaxationLighting.computeLighting(chunk);
+        byte[][] actual = ChunkLighting.computeLighting(chunk);
+
+        assertEquals(Chunk.SECTIONS, actual.length);
+        for (int sectionY = 0; sectionY < Chunk.SECTIONS; sectionY++) {
+            if (expected[sectionY] == null) {
+                assertNull(actual[sectionY], "section " + sectionY + " should be full sky");
+                continue;
+            }
+            assertNotNull(actual[sectionY], "section " + sectionY + " should not be full sky");
+            for (int i = 0; i < ChunkSection.SECTION_VOLUME; i++) {
+                int expectedLight = expected[sectionY][i] & 0xFF;
+                int actualLight = actual[sectionY][i] & 0xFF;
+                if (expectedLight == actualLight) {
+                    continue;
+                }
+                int x = i % SIZE;
+                int y = (sectionY * ChunkSection.SECTION_SIZE) + (i / (SIZE * SIZE));
+                int z = (i / SIZE) % SIZE;
+                assertEquals(Chunk.skyLight(expectedLight), Chunk.skyLight(actualLight), "sky light at " + x + ", " + y + ", " + z);
+                assertEquals(Chunk.blockLight(expectedLight), Chunk.blockLight(actualLight), "block light at " + x + ", " + y + ", " + z);
+            }
+        }
+    }
+
+    private static void fill(Chunk chunk, int minY, int maxY, Block block) {
+        for (int y = minY; y <= maxY; y++) {
+            for (int z = 0; z < SIZE; z++) {
+                for (int x = 0; x < SIZE; x++) {
+                    chunk.setBlock(x, y, z, block);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void generatedChunksMatchRelaxation() {
+        int[][] positions = {
+            {0, 0}, {1, 0}, {-3, 7}, {12, -5}, {-40, -21}, {97, 64}
+        };
+        for (int[] position : positions) {
+            Chunk chunk = new Chunk(position[0], position[1]);
+            ChunkGenerator.generateChunk(chunk);
+            assertSameLighting(chunk);
+        }
+    }
+
+    @Test
+    public void emptyChunkIsFullSky() {
+        Chunk chunk = new Chunk(0, 0);
+        assertSameLighting(chunk);
+
+        byte[][] sections = ChunkLighting.computeLighting(chunk);
+        for (int sectionY = 0; sectionY < Chunk.SECTIONS; sectionY++) {
+            assertNull(sections[sectionY]);
+        }
+    }
+
+    @Test
+    public void sectionsAboveTerrainAreFullSky() {
+        Chunk chunk = new Chunk(0, 0);
+        fill(chunk, 0, 40, Blocks.STONE);
+        assertSameLighting(chunk);
+
+        byte[][] sections = ChunkLighting.computeLighting(chunk);
+        assertNotNull(sections[2]);
+        for (int sectionY = 3; sectionY < Chunk.SECTIONS; sectionY++) {
+            assertNull(sections[sectionY]);
+        }
+    }
+
+    @Test
+    public void bottomBoundarySeedsSkyLight() {
+        Chunk chunk = new Chunk(0, 0);
+        fill(chunk, 64, HEIGHT - 1, Blocks.STONE);
+        assertSameLighting(chunk);
+
+        chunk.setLighting(ChunkLighting.computeLighting(chunk));
+        for (int z = 0; z < SIZE; z++) {
+            for (int x = 0; x < SIZE; x++) {
+                for (int y = 0; y < 64; y++) {
+                    assertEquals(Math.max(Chunk.MAX_LIGHT_LEVEL - 1 - y, 0), chunk.getSkyLight(x, y, z));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void topBoundarySeedsSkyLight() {
+        Chunk chunk = new Chunk(0, 0);
+        fill(chunk, 0, HEIGHT - 1, Blocks.STONE);
+
+        //a pocket on the top layer, closed on every side except the top of the chunk
+        chunk.setBlock(8, HEIGHT - 1, 8, Blocks.AIR);
+        chunk.setBlock(8, HEIGHT - 2, 8, Blocks.AIR);
+        chunk.setBlock(9, HEIGHT - 2, 8, Blocks.AIR);
+        assertSameLighting(chunk);
+
+        chunk.setLighting(ChunkLighting.computeLighting(chunk));
+        assertEquals(Chunk.MAX_LIGHT_LEVEL, chunk.getSkyLight(8, HEIGHT - 1, 8));
+        assertEquals(Chunk.MAX_LIGHT_LEVEL, chunk.getSkyLight(8, HEIGHT - 2, 8));
+        assertEquals(Chunk.MAX_LIGHT_LEVEL - 1, chunk.getSkyLight(9, HEIGHT - 2, 8));
+    }
+
+    @Test
+    public void emittersInsideSealedCaves() {
+        Chunk chunk = new Chunk(0, 0);
+        fill(chunk, 0, 80, Blocks.STONE);
+        for (int y = 20; y < 30; y++) {
+            for (int z = 2; z < 14; z++) {
+                for (int x = 2; x < 14; x++) {
+                    chunk.setBlock(x, y, z, Blocks.AIR);
+                }
+            }
+        }
+        chunk.setBlock(4, 20, 4, Blocks.LANTERN);
+        chunk.setBlock(11, 25, 9, Blocks.LAVA);
+        chunk.setBlock(7, 22, 7, Blocks.GLASS);
+        chunk.setBlock(7, 23, 7, Blocks.WATER);
+        assertSameLighting(chunk);
+
+        chunk.setLighting(ChunkLighting.computeLighting(chunk));
+        assertEquals(Chunk.MAX_LIGHT_LEVEL, chunk.getBlockLight(4, 20, 4));
+        assertEquals(Chunk.MAX_LIGHT_LEVEL - 1, chunk.getBlockLight(4, 21, 4));
+        assertEquals(0, chunk.getSkyLight(8, 25, 8));
+    }
+
+}
@@ -0,0 +1,127 @@
+package cientistavuador.leitecraft;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * @author Cien
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChunkScanBenchmark {
+
+    private static final int SIZE = Chunk.CHUNK_SIZE;
+    private static final int HEIGHT = Chunk.CHUNK_HEIGHT;
+
+    private Chunk chunk;
+
+    //the boxed registry every block read went through before the dense registry
+    private final Map<Integer, Block> registry = new HashMap<>();
+
+    @Setup
+    public void setup() {
+        Natives.load();
+
+        this.chunk = new Chunk(0, 0);
+        ChunkGenerator.generateChunk(this.chunk);
+
+        for (int id = 1; id < Blocks.MAX_BLOCKS; id++) {
+            Block block = Blocks.getBlock(id);
+            if (block != null) {
+                this.registry.put(id, block);
+            }
+        }
+
+        //every variant reads the same flags, so they must agree
+        int expected = denseRegistry();
+        if (hashMapRegistry() != expected || propertyTable() != expected) {
+            throw new RuntimeException("Scans disagree");
+        }
+    }
+
+    //each scan reads what the lighting and collision loops need from every block, air counts as nothing
+    private static int scan(Block block) {
+        if (block == Blocks.AIR) {
+            return 0;
+        }
+        int result = block.getLightEmission();
+        if (!block.isTransparent()) {
+            result += 1 << 8;
+        }
+        if (block.hasCollision()) {
+            result += 1 << 16;
+        }
+        return result;
+    }
+
+    private static int scan(int id) {
+        if (id == 0) {
+            return 0;
+        }
+        int properties = Blocks.getProperties(id);
+        int result = Blocks.getLightEmission(id);
+        if ((properties & Blocks.TRANSPARENT) == 0) {
+            result += 1 << 8;
+        }
+        if ((properties & Blocks.COLLISION) != 0) {
+            result += 1 << 16;
+        }
+        return result;
+    }
+
+    @Benchmark
+    public int hashMapRegistry() {
+        int result = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int z = 0; z < SIZE; z++) {
+                for (int x = 0; x < SIZE; x++) {
+                    result += scan(this.registry.get(this.chunk.getBlockId(x, y, z)));
+                }
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    public int denseRegistry() {
+        int result = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int z = 0; z < SIZE; z++) {
+                for (int x = 0; x < SIZE; x++) {
+                    result += scan(this.chunk.getBlock(x, y, z));
+                }
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    public int propertyTable() {
+        int result = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int z = 0; z < SIZE; z++) {
+                for (int x = 0; x < SIZE; x++) {
+                    result += scan(this.chunk.getBlockId(x, y, z));
+                }
+            }
+        }
+        return result;
+    }
+
+}
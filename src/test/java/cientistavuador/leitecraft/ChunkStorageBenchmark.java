@@ -0,0 +1,173 @@
+package cientistavuador.leitecraft;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * @author Cien
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChunkStorageBenchmark {
+
+    private static final int SIZE = Chunk.CHUNK_SIZE;
+    private static final int HEIGHT = Chunk.CHUNK_HEIGHT;
+
+    private Chunk chunk;
+
+    //the same chunk with more than 16 block types in every section, so the storage is direct 8-bit
+    private Chunk directChunk;
+
+    private final byte[] sectionBlocks = new byte[ChunkSection.SECTION_VOLUME];
+
+    //the flat array with one byte per block that chunks used before the palette
+    private byte[] blocks;
+
+    //the boxed registry lookup the byte array was paired with before the dense registry
+    private final Map<Integer, Block> registry = new HashMap<>();
+
+    @Setup
+    public void setup() {
+        Natives.load();
+
+        this.chunk = new Chunk(0, 0);
+        ChunkGenerator.generateChunk(this.chunk);
+
+        this.blocks = new byte[SIZE * SIZE * HEIGHT];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int z = 0; z < SIZE; z++) {
+                for (int x = 0; x < SIZE; x++) {
+                    this.blocks[x + (y * SIZE * SIZE) + (z * SIZE)] = (byte) this.chunk.getBlockId(x, y, z);
+                }
+            }
+        }
+
+        this.directChunk = new Chunk(0, 0);
+        Block[] types = Blocks.getBlocks();
+        Random random = new Random(1234);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int z = 0; z < SIZE; z++) {
+                for (int x = 0; x < SIZE; x++) {
+                    this.directChunk.setBlock(x, y, z, types[random.nextInt(types.length)]);
+                }
+            }
+        }
+        for (int sectionY = 0; sectionY < Chunk.SECTIONS; sectionY++) {
+            if (this.directChunk.getSection(sectionY).getMemoryUsage() != ChunkSection.SECTION_VOLUME) {
+                throw new RuntimeException("Section " + sectionY + " is not direct");
+            }
+        }
+
+        for (int id = 1; id < Blocks.MAX_BLOCKS; id++) {
+            Block block = Blocks.getBlock(id);
+            if (block != null) {
+                this.registry.put(id, block);
+            }
+        }
+    }
+
+    private Block byteArrayGetBlock(int x, int y, int z) {
+        if (y < 0 || y >= HEIGHT) {
+            return Blocks.AIR;
+        }
+        return Blocks.getBlock(((int) this.blocks[x + (y * SIZE * SIZE) + (z * SIZE)]) & 0xFF);
+    }
+
+    private Block byteArrayHashMapGetBlock(int x, int y, int z) {
+        if (y < 0 || y >= HEIGHT) {
+            return Blocks.AIR;
+        }
+        return this.registry.get(((int) this.blocks[x + (y * SIZE * SIZE) + (z * SIZE)]) & 0xFF);
+    }
+
+    @Benchmark
+    public int byteArrayHashMap() {
+        int count = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int z = 0; z < SIZE; z++) {
+                for (int x = 0; x < SIZE; x++) {
+                    if (byteArrayHashMapGetBlock(x, y, z) != Blocks.AIR) {
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int byteArray() {
+        int count = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int z = 0; z < SIZE; z++) {
+                for (int x = 0; x < SIZE; x++) {
+                    if (byteArrayGetBlock(x, y, z) != Blocks.AIR) {
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int paletted() {
+        int count = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int z = 0; z < SIZE; z++) {
+                for (int x = 0; x < SIZE; x++) {
+                    if (this.chunk.getBlock(x, y, z) != Blocks.AIR) {
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+    @Benchmark
+    public int palettedDirect() {
+        int count = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int z = 0; z < SIZE; z++) {
+                for (int x = 0; x < SIZE; x++) {
+                    if (this.directChunk.getBlock(x, y, z) != Blocks.AIR) {
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int palettedCopy() {
+        int count = 0;
+        for (int sectionY = 0; sectionY < Chunk.SECTIONS; sectionY++) {
+            this.chunk.copyBlockIds(sectionY, this.sectionBlocks);
+            for (int i = 0; i < ChunkSection.SECTION_VOLUME; i++) {
+                if (Blocks.getBlock(((int) this.sectionBlocks[i]) & 0xFF) != Blocks.AIR) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+}
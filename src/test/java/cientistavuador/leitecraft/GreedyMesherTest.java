@@ -0,0 +1,254 @@
+package cientistavuador.leitecraft;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.lwjgl.system.MemoryUtil;
+
+/**
+ *
+ * @author Cien
+ */
+public class GreedyMesherTest {
+
+    private static final int SIZE = Chunk.CHUNK_SIZE;
+    private static final int VERTICES = QuadIndexBuffer.VERTICES_PER_QUAD;
+
+    //sections 2 and 3 are meshed, the random blocks reach into the sections around them
+    private static final int MIN_Y = 24;
+    private static final int MAX_Y = 71;
+    private static final int SECTIONS = (1 << 2) | (1 << 3);
+
+    @BeforeAll
+    public static void loadNatives() {
+        Natives.load();
+    }
+
+    private static Block randomBlock(Random random) {
+        int roll = random.nextInt(20);
+        if (roll < 8) {
+            return Blocks.AIR;
+        }
+        if (roll < 18) {
+            Block[] common = {Blocks.STONE, Blocks.DIRT, Blocks.GRASS, Blocks.SAND, Blocks.GLASS};
+            return common[random.nextInt(common.length)];
+        }
+        Block[] blocks = Blocks.getBlocks();
+        return blocks[random.nextInt(blocks.length)];
+    }
+
+    //the 3x3 chunks around the origin, runs of random blocks along x so the greedy path has something to merge
+    private static ChunkMatrix randomMatrix(Random random, boolean randomLight) {
+        ChunkMatrix matrix = new ChunkMatrix();
+        for (int i = 0; i < matrix.length(); i++) {
+            Chunk chunk = new Chunk((i % 3) - 1, (i / 3) - 1);
+            for (int y = MIN_Y; y <= MAX_Y; y++) {
+                for (int z = 0; z < SIZE; z++) {
+                    Block block = Blocks.AIR;
+                    for (int x = 0; x < SIZE; x++) {
+                        if (random.nextInt(4) == 0) {
+                            block = randomBlock(random);
+                        }
+                        chunk.setBlock(x, y, z, block);
+                    }
+                }
+            }
+
+            byte[][] light = new byte[Chunk.SECTIONS][];
+            if (randomLight) {
+                for (int sectionY = 0; sectionY < Chunk.SECTIONS; sectionY++) {
+                    light[sectionY] = new byte[ChunkSection.SECTION_VOLUME];
+                    for (int j = 0; j < light[sectionY].length; j++) {
+                        //a few levels only, so neighbouring faces still share their light now and then
+                        light[sectionY][j] = (byte) Chunk.packLight(Chunk.MAX_LIGHT_LEVEL - random.nextInt(2), random.nextInt(2));
+                    }
+                }
+            }
+            chunk.setLighting(light);
+
+            matrix.setChunk(i, chunk.snapshot());
+        }
+        return matrix;
+    }
+
+    private static int read(long vertex, int offset) {
+        return MemoryUtil.memGetByte(vertex + offset) & 0xFF;
+    }
+
+    //value of a vertex attribute at a corner inside the quad, interpolated like the rasterizer does across the quad,
+    //kept as a fraction when it falls between whole values so a wrong merge cannot round to the right answer
+    private static String interpolate(long[] corners, int offset, int u, int v, int minU, int minV, int maxU, int maxV) {
+        int area = (maxU - minU) * (maxV - minV);
+        int sum = ((maxU - u) * (maxV - v) * read(corners[0], offset))
+                + ((u - minU) * (maxV - v) * read(corners[1], offset))
+                + ((maxU - u) * (v - minV) * read(corners[2], offset))
+                + ((u - minU) * (v - minV) * read(corners[3], offset));
+        if (sum % area == 0) {
+            return Integer.toString(sum / area);
+        }
+        return sum + "/" + area;
+    }
+
+    //every quad of the stream broken into the unit faces it covers, with the tile, texture orientation,
+    //ambient occlusion and light at each corner, sorted so the lists can be compared
+    private static List<String> cellFaces(VerticesStream stream) {
+        List<String> faces = new ArrayList<>();
+        for (int quad = 0; quad < stream.amountOfQuads(); quad++) {
+            long[] vertices = new long[VERTICES];
+            for (int i = 0; i < VERTICES; i++) {
+                vertices[i] = stream.address() + (((long) (quad * VERTICES) + i) * VerticesStream.VERTEX_BYTES);
+            }
+
+            int face = read(vertices[0], VerticesStream.NORMAL_OFFSET);
+            int normalAxis = face / 2;
+            int uAxis = (normalAxis == 0 ? 2 : 0);
+            int vAxis = (normalAxis == 1 ? 2 : 1);
+
+            //billboards are not on a face plane, they are compared as they are
+            boolean planar = face < VerticesStream.FACES;
+            for (int i = 1; i < VERTICES && planar; i++) {
+                planar = read(vertices[i], VerticesStream.POSITION_OFFSET + normalAxis) == read(vertices[0], VerticesStream.POSITION_OFFSET + normalAxis);
+            }
+            if (!planar) {
+                StringBuilder unaligned = new StringBuilder("unaligned");
+                for (long vertex : vertices) {
+                    for (int i = 0; i < VerticesStream.VERTEX_BYTES; i++) {
+                        unaligned.append(' ').append(read(vertex, i));
+                    }
+                }
+                faces.add(unaligned.toString());
+                continue;
+            }
+
+            int minU = Integer.MAX_VALUE;
+            int maxU = Integer.MIN_VALUE;
+            int minV = Integer.MAX_VALUE;
+            int maxV = Integer.MIN_VALUE;
+            for (long vertex : vertices) {
+                int u = read(vertex, VerticesStream.POSITION_OFFSET + uAxis);
+                int v = read(vertex, VerticesStream.POSITION_OFFSET + vAxis);
+                minU = Math.min(minU, u);
+                maxU = Math.max(maxU, u);
+                minV = Math.min(minV, v);
+                maxV = Math.max(maxV, v);
+            }
+            int width = maxU - minU;
+            int height = maxV - minV;
+            int plane = read(vertices[0], VerticesStream.POSITION_OFFSET + normalAxis);
+
+            //corner 0 is the lowest u and v, bit 0 is the highest u and bit 1 the highest v
+            long[] corners = new long[VERTICES];
+            for (long vertex : vertices) {
+                int u = read(vertex, VerticesStream.POSITION_OFFSET + uAxis);
+                int v = read(vertex, VerticesStream.POSITION_OFFSET + vAxis);
+                corners[(u == maxU ? 1 : 0) | (v == maxV ? 2 : 0)] = vertex;
+            }
+
+            int tileU = read(corners[0], VerticesStream.TILE_UV_OFFSET);
+            int tileV = read(corners[0], VerticesStream.TILE_UV_OFFSET + 1);
+            int tileUAlongU = (read(corners[1], VerticesStream.TILE_UV_OFFSET) - tileU) / width;
+            int tileVAlongU = (read(corners[1], VerticesStream.TILE_UV_OFFSET + 1) - tileV) / width;
+            int tileUAlongV = (read(corners[2], VerticesStream.TILE_UV_OFFSET) - tileU) / height;
+            int tileVAlongV = (read(corners[2], VerticesStream.TILE_UV_OFFSET + 1) - tileV) / height;
+
+            StringBuilder shared = new StringBuilder();
+            shared.append(" tile ").append(read(corners[0], VerticesStream.TILE_OFFSET));
+            shared.append(" frames ").append(read(corners[0], VerticesStream.ANIMATED_FRAMES_OFFSET));
+            shared.append(" blend ").append(read(corners[0], VerticesStream.BLEND_MODE_OFFSET));
+            shared.append(" uv ").append(tileUAlongU).append(' ').append(tileVAlongU);
+            shared.append(' ').append(tileUAlongV).append(' ').append(tileVAlongV);
+
+            for (int v = minV; v < maxV; v++) {
+                for (int u = minU; u < maxU; u++) {
+                    int[] position = new int[3];
+                    position[normalAxis] = plane - (face % 2);
+                    position[uAxis] = u;
+                    position[vAxis] = v;
+                    StringBuilder cell = new StringBuilder();
+                    cell.append("face ").append(face).append(" at ");
+                    cell.append(position[0]).append(", ").append(position[1]).append(", ").append(position[2]);
+                    cell.append(shared);
+                    for (int corner = 0; corner < VERTICES; corner++) {
+                        int cornerU = u + (corner & 1);
+                        int cornerV = v + (corner >> 1);
+                        cell.append(" corner ").append(corner);
+                        cell.append(" ao ").append(interpolate(corners, VerticesStream.AO_OFFSET, cornerU, cornerV, minU, minV, maxU, maxV));
+                        cell.append(" light ").append(interpolate(corners, VerticesStream.SKY_LIGHT_OFFSET, cornerU, cornerV, minU, minV, maxU, maxV));
+                        cell.append(' ').append(interpolate(corners, VerticesStream.BLOCK_LIGHT_OFFSET, cornerU, cornerV, minU, minV, maxU, maxV));
+                    }
+                    faces.add(cell.toString());
+                }
+            }
+        }
+        Collections.sort(faces);
+        return faces;
+    }
+
+    private static List<List<String>> mesh(ChunkMatrix matrix, boolean greedy) {
+        boolean previous = RenderableChunk.GREEDY_MESHING;
+        RenderableChunk.GREEDY_MESHING = greedy;
+        try {
+            List<List<String>> faces = new ArrayList<>();
+            RenderableChunk renderable = new RenderableChunk(null, matrix.getChunk(0, 0));
+            renderable.meshAndDiscard(new ChunkMatrix(matrix), SECTIONS, (solid, alpha) -> {
+                faces.add(cellFaces(solid));
+                faces.add(cellFaces(alpha));
+            });
+            return faces;
+        } finally {
+            RenderableChunk.GREEDY_MESHING = previous;
+        }
+    }
+
+    private static void assertSameFaces(ChunkMatrix matrix) {
+        List<List<String>> perFace = mesh(matrix, false);
+        List<List<String>> greedy = mesh(matrix, true);
+
+        assertFalse(perFace.get(0).isEmpty());
+        assertEquals(perFace.get(0), greedy.get(0), "solid faces");
+        assertEquals(perFace.get(1), greedy.get(1), "alpha faces");
+    }
+
+    @Test
+    public void randomSectionsMatchPerFacePath() {
+        Random random = new Random(13579);
+        for (int i = 0; i < 8; i++) {
+            assertSameFaces(randomMatrix(random, false));
+        }
+    }
+
+    @Test
+    public void randomSectionsWithRandomLightMatchPerFacePath() {
+        Random random = new Random(24680);
+        for (int i = 0; i < 8; i++) {
+            assertSameFaces(randomMatrix(random, true));
+        }
+    }
+
+    @Test
+    public void greedyPathMergesFaces() {
+        ChunkMatrix matrix = new ChunkMatrix();
+        Chunk chunk = new Chunk(0, 0);
+        for (int z = 0; z < SIZE; z++) {
+            for (int x = 0; x < SIZE; x++) {
+                chunk.setBlock(x, 40, z, Blocks.STONE);
+            }
+        }
+        matrix.setChunk(0, 0, chunk.snapshot());
+        assertSameFaces(matrix);
+
+        boolean previous = RenderableChunk.GREEDY_MESHING;
+        RenderableChunk.GREEDY_MESHING = true;
+        try {
+            //one quad for each side of the slab, the light around it is uniform
+            assertEquals(6, new RenderableChunk(null, chunk).meshAndDiscard(new ChunkMatrix(matrix), SECTIONS));
+        } finally {
+            RenderableChunk.GREEDY_MESHING = previous;
+        }
+    }
+
+}
@@ -0,0 +1,72 @@
+package cientistavuador.leitecraft;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * @author Cien
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MeshBenchmark {
+
+    @Param({"true", "false"})
+    private boolean greedy;
+
+    //snapshots of a generated and lit 3x3 neighbourhood, the same input a mesh job gets
+    private final Chunk[] snapshots = new Chunk[3 * 3];
+
+    private RenderableChunk renderable;
+
+    @Setup
+    public void setup() {
+        Natives.load();
+
+        for (int z = -1; z <= 1; z++) {
+            for (int x = -1; x <= 1; x++) {
+                Chunk chunk = new Chunk(x, z);
+                ChunkGenerator.generateChunk(chunk);
+                chunk.setLighting(ChunkLighting.computeLighting(chunk));
+                this.snapshots[(x + 1) + ((z + 1) * 3)] = chunk.snapshot();
+            }
+        }
+
+        RenderableChunk.GREEDY_MESHING = this.greedy;
+        this.renderable = new RenderableChunk(null, this.snapshots[4]);
+    }
+
+    //time and allocation of a full chunk job, run with -prof gc for gc.alloc.rate.norm,
+    //the teardown prints the job's own allocation counter
+    @Benchmark
+    public int meshJob() {
+        ChunkMatrix matrix = new ChunkMatrix();
+        for (int i = 0; i < this.snapshots.length; i++) {
+            matrix.setChunk(i, this.snapshots[i]);
+        }
+        return this.renderable.meshAndDiscard(matrix, RenderableChunk.ALL_SECTIONS);
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.out.println();
+        System.out.println("Allocated per mesh job: " + RenderableChunk.getAverageMeshJobAllocation() + " bytes over " + RenderableChunk.getMeshJobs() + " jobs");
+        RenderableChunk.GREEDY_MESHING = true;
+    }
+
+}
@@ -0,0 +1,18 @@
+package cientistavuador.leitecraft;
+
+/**
+ *
+ * @author Cien
+ */
+public class Natives {
+
+    //initializing Main extracts the natives and points lwjgl at them, the atlas needs them to decode its image
+    public static void load() {
+        Main.isSupported(1, 1);
+    }
+
+    private Natives() {
+
+    }
+
+}
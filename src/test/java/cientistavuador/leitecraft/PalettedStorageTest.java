@@ -0,0 +1,83 @@
+package cientistavuador.leitecraft;
+
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author Cien
+ */
+public class PalettedStorageTest {
+
+    private static final int SIZE = ChunkSection.SECTION_VOLUME;
+
+    private static void assertContents(int[] expected, PalettedStorage storage) {
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], storage.get(i), "value at " + i);
+        }
+
+        byte[] copied = new byte[expected.length];
+        storage.copyTo(copied);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], copied[i] & 0xFF, "copied value at " + i);
+        }
+    }
+
+    private static int[] fillRandom(PalettedStorage storage, Random random, int types) {
+        int[] expected = new int[storage.size()];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = random.nextInt(types);
+            storage.set(i, expected[i]);
+        }
+        return expected;
+    }
+
+    @Test
+    public void growsThroughEveryWidth() {
+        PalettedStorage storage = new PalettedStorage(SIZE);
+        assertEquals(1, storage.getBitsPerEntry());
+        assertContents(new int[SIZE], storage);
+
+        int[] expected = new int[SIZE];
+        int[] widths = {1, 1, 2, 2, 4, 4, 4, 4, 4, 4, 4, 4, 4, 4, 4, 4, 8};
+        for (int value = 1; value <= PalettedStorage.MAX_PALETTE_SIZE; value++) {
+            expected[value * 7] = value;
+            storage.set(value * 7, value);
+            assertEquals(widths[value], storage.getBitsPerEntry(), "bits after " + (value + 1) + " values");
+            assertContents(expected, storage);
+        }
+    }
+
+    @Test
+    public void directStorageKeepsEveryValue() {
+        Random random = new Random(4321);
+        PalettedStorage storage = new PalettedStorage(SIZE);
+        int[] expected = fillRandom(storage, random, 256);
+
+        assertEquals(PalettedStorage.DIRECT_BITS, storage.getBitsPerEntry());
+        assertEquals(SIZE, storage.getMemoryUsage());
+        assertContents(expected, storage);
+
+        storage.set(10, 255);
+        expected[10] = 255;
+        assertContents(expected, storage);
+    }
+
+    @Test
+    public void copiesAreIndependent() {
+        Random random = new Random(8765);
+        for (int types : new int[]{2, 9, 200}) {
+            PalettedStorage storage = new PalettedStorage(SIZE);
+            int[] expected = fillRandom(storage, random, types);
+
+            PalettedStorage copy = new PalettedStorage(storage);
+            assertContents(expected, copy);
+
+            copy.set(0, expected[0] + 1);
+            assertEquals(expected[0], storage.get(0));
+            assertEquals(expected[0] + 1, copy.get(0));
+        }
+    }
+
+}
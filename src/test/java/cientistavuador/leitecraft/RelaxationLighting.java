@@ -0,0 +1,174 @@
+package cientistavuador.leitecraft;
+
+import java.util.Arrays;
+
+/**
+ *
+ * @author Cien
+ */
+public class RelaxationLighting {
+
+    //the relaxation passes ChunkLighting used before the flood fill, adapted to a single chunk with separate sky and block light
+    public static byte[][] computeLighting(Chunk chunk) {
+        return new RelaxationLighting(chunk).compute();
+    }
+
+    public static final int SIZE = Chunk.CHUNK_SIZE;
+    public static final int HEIGHT = Chunk.CHUNK_HEIGHT;
+
+    private final Chunk chunk;
+
+    private final boolean[] noWorkDoneCache = new boolean[HEIGHT];
+    private final boolean[] solidCache = new boolean[SIZE * SIZE * HEIGHT];
+
+    private final byte[] skyLighting = new byte[SIZE * SIZE * HEIGHT];
+    private final byte[] blockLighting = new byte[SIZE * SIZE * HEIGHT];
+
+    private byte[] lightingRead = new byte[SIZE * SIZE * HEIGHT];
+    private byte[] lightingWrite = new byte[SIZE * SIZE * HEIGHT];
+
+    //light level outside of the top and bottom of the chunk
+    private int boundaryLightLevel = 0;
+
+    private RelaxationLighting(Chunk chunk) {
+        this.chunk = chunk;
+    }
+
+    private void flipBuffers() {
+        byte[] a = this.lightingWrite;
+        byte[] b = this.lightingRead;
+        this.lightingWrite = b;
+        this.lightingRead = a;
+    }
+
+    private int getLightLevel(int x, int y, int z) {
+        if (y < 0 || y >= HEIGHT) {
+            return this.boundaryLightLevel;
+        }
+        if (x < 0 || x >= SIZE) {
+            return 0;
+        }
+        if (z < 0 || z >= SIZE) {
+            return 0;
+        }
+        return this.lightingRead[x + (y * SIZE * SIZE) + (z * SIZE)];
+    }
+
+    private void setLightLevel(int x, int y, int z, int lightLevel) {
+        this.lightingWrite[x + (y * SIZE * SIZE) + (z * SIZE)] = (byte) lightLevel;
+    }
+
+    private boolean isSolid(int x, int y, int z) {
+        return this.solidCache[x + (y * SIZE * SIZE) + (z * SIZE)];
+    }
+
+    private void prepareLightingAndSolidCache() {
+        for (int z = 0; z < SIZE; z++) {
+            for (int x = 0; x < SIZE; x++) {
+                boolean foundGround = false;
+                for (int y = HEIGHT - 1; y >= 0; y--) {
+                    int index = x + (y * SIZE * SIZE) + (z * SIZE);
+                    Block blockAt = this.chunk.getBlock(x, y, z);
+
+                    boolean solid = blockAt != Blocks.AIR && !blockAt.isTransparent();
+                    this.solidCache[index] = solid;
+
+                    if (solid) {
+                        foundGround = true;
+                    }
+
+                    this.skyLighting[index] = (byte) (foundGround ? 0 : Chunk.MAX_LIGHT_LEVEL);
+                    this.blockLighting[index] = (byte) (blockAt != Blocks.AIR ? blockAt.getLightEmission() : 0);
+                }
+            }
+        }
+    }
+
+    private void updateLighting() {
+        System.arraycopy(this.lightingRead, 0, this.lightingWrite, 0, this.lightingWrite.length);
+
+        for (int y = 0; y < HEIGHT; y++) {
+            if (this.noWorkDoneCache[y]) {
+                continue;
+            }
+            boolean noWorkDone = true;
+            for (int z = 0; z < SIZE; z++) {
+                for (int x = 0; x < SIZE; x++) {
+                    int currentLightLevel = getLightLevel(x, y, z);
+
+                    if (currentLightLevel >= (Chunk.MAX_LIGHT_LEVEL - 1)) {
+                        continue;
+                    }
+
+                    if (isSolid(x, y, z)) {
+                        continue;
+                    }
+
+                    noWorkDone = false;
+
+                    int negativeX = getLightLevel(x - 1, y, z) - 1;
+                    int positiveX = getLightLevel(x + 1, y, z) - 1;
+                    int negativeY = getLightLevel(x, y - 1, z) - 1;
+                    int positiveY = getLightLevel(x, y + 1, z) - 1;
+                    int negativeZ = getLightLevel(x, y, z - 1) - 1;
+                    int positiveZ = getLightLevel(x, y, z + 1) - 1;
+
+                    setLightLevel(x, y, z,
+                            Math.max(
+                                    Math.max(
+                                            currentLightLevel,
+                                            Math.max(negativeX, positiveX)
+                                    ),
+                                    Math.max(
+                                            Math.max(negativeY, positiveY),
+                                            Math.max(negativeZ, positiveZ)
+                                    )
+                            )
+                    );
+                }
+            }
+            this.noWorkDoneCache[y] = noWorkDone;
+        }
+    }
+
+    private void relax(byte[] lighting, int boundaryLightLevel) {
+        this.boundaryLightLevel = boundaryLightLevel;
+        Arrays.fill(this.noWorkDoneCache, false);
+        System.arraycopy(lighting, 0, this.lightingRead, 0, lighting.length);
+
+        for (int i = 0; i < Chunk.MAX_LIGHT_LEVEL; i++) {
+            updateLighting();
+            flipBuffers();
+        }
+
+        System.arraycopy(this.lightingRead, 0, lighting, 0, lighting.length);
+    }
+
+    private byte[][] output() {
+        byte[][] sections = new byte[Chunk.SECTIONS][];
+        for (int sectionY = 0; sectionY < Chunk.SECTIONS; sectionY++) {
+            int start = sectionY * ChunkSection.SECTION_VOLUME;
+            byte[] section = new byte[ChunkSection.SECTION_VOLUME];
+            boolean fullSky = true;
+            for (int i = 0; i < ChunkSection.SECTION_VOLUME; i++) {
+                int light = Chunk.packLight(this.skyLighting[start + i], this.blockLighting[start + i]);
+                section[i] = (byte) light;
+                if (light != Chunk.FULL_SKY_LIGHT) {
+                    fullSky = false;
+                }
+            }
+            sections[sectionY] = (fullSky ? null : section);
+        }
+        return sections;
+    }
+
+    private byte[][] compute() {
+        prepareLightingAndSolidCache();
+
+        relax(this.skyLighting, Chunk.MAX_LIGHT_LEVEL);
+        relax(this.blockLighting, 0);
+
+        return output();
+    }
+
+}
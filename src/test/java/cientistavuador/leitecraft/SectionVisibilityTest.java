@@ -0,0 +1,197 @@
+package cientistavuador.leitecraft;
+
+import static cientistavuador.leitecraft.BlockVertices.*;
+import static cientistavuador.leitecraft.SectionVisibility.*;
+import java.util.Arrays;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author Cien
+ */
+public class SectionVisibilityTest {
+
+    private static final int SIZE = ChunkSection.SECTION_SIZE;
+
+    @BeforeAll
+    public static void loadNatives() {
+        Natives.load();
+    }
+
+    private static ChunkSection solidSection() {
+        return new ChunkSection(Blocks.STONE.getId());
+    }
+
+    private static void fill(ChunkSection section, int minY, int maxY, int id) {
+        for (int y = minY; y <= maxY; y++) {
+            for (int z = 0; z < SIZE; z++) {
+                for (int x = 0; x < SIZE; x++) {
+                    section.setBlockId(x, y, z, id);
+                }
+            }
+        }
+    }
+
+    private static long connectivity(int... pairs) {
+        long connectivity = NONE_CONNECTED;
+        for (int i = 0; i < pairs.length; i += 2) {
+            connectivity |= 1L << ((pairs[i] * FACES) + pairs[i + 1]);
+            connectivity |= 1L << ((pairs[i + 1] * FACES) + pairs[i]);
+        }
+        return connectivity;
+    }
+
+    private static int node(int size, int sections, int x, int y, int z) {
+        return ((x + (z * size)) * sections) + y;
+    }
+
+    private static boolean isVisible(int[] visibleSections, int size, int x, int y, int z) {
+        return (visibleSections[x + (z * size)] & (1 << y)) != 0;
+    }
+
+    @Test
+    public void emptyAndUniformSections() {
+        assertEquals(ALL_CONNECTED, SectionVisibility.compute(null));
+        assertEquals(ALL_CONNECTED, SectionVisibility.compute(new ChunkSection(0)));
+        assertEquals(NONE_CONNECTED, SectionVisibility.compute(solidSection()));
+        assertEquals(ALL_CONNECTED, SectionVisibility.compute(new ChunkSection(Blocks.GLASS.getId())));
+        assertEquals(ALL_CONNECTED, SectionVisibility.compute(new ChunkSection(Blocks.WATER.getId())));
+
+        //cleared back to air block by block, no longer uniform but still empty
+        ChunkSection cleared = new ChunkSection(0);
+        cleared.setBlockId(3, 3, 3, Blocks.STONE.getId());
+        cleared.setBlockId(3, 3, 3, 0);
+        assertTrue(cleared.isEmpty());
+        assertEquals(ALL_CONNECTED, SectionVisibility.compute(cleared));
+    }
+
+    @Test
+    public void singleBlockKeepsEveryFaceConnected() {
+        ChunkSection section = new ChunkSection(0);
+        section.setBlockId(0, 0, 0, Blocks.STONE.getId());
+        assertEquals(ALL_CONNECTED, SectionVisibility.compute(section));
+    }
+
+    @Test
+    public void sealedSlabDisconnectsOppositeFaces() {
+        ChunkSection section = new ChunkSection(0);
+        fill(section, 8, 8, Blocks.STONE.getId());
+        long connectivity = SectionVisibility.compute(section);
+
+        assertFalse(isConnected(connectivity, NEGATIVE_Y, POSITIVE_Y));
+        assertFalse(isConnected(connectivity, POSITIVE_Y, NEGATIVE_Y));
+
+        //both halves still touch every side face
+        assertTrue(isConnected(connectivity, NEGATIVE_Y, NEGATIVE_X));
+        assertTrue(isConnected(connectivity, POSITIVE_Y, POSITIVE_Z));
+        assertTrue(isConnected(connectivity, NEGATIVE_X, POSITIVE_X));
+        assertTrue(isConnected(connectivity, NEGATIVE_Z, POSITIVE_Z));
+
+        //a single hole through the slab joins them again
+        section.setBlockId(5, 8, 5, 0);
+        assertEquals(ALL_CONNECTED, SectionVisibility.compute(section));
+
+        //transparent blocks do not seal
+        section.setBlockId(5, 8, 5, Blocks.GLASS.getId());
+        assertEquals(ALL_CONNECTED, SectionVisibility.compute(section));
+    }
+
+    @Test
+    public void lShapedTunnelConnectsAdjacentFaces() {
+        ChunkSection section = solidSection();
+        for (int x = 0; x <= 8; x++) {
+            section.setBlockId(x, 5, 5, 0);
+        }
+        for (int z = 5; z < SIZE; z++) {
+            section.setBlockId(8, 5, z, 0);
+        }
+        long connectivity = SectionVisibility.compute(section);
+
+        assertEquals(connectivity(NEGATIVE_X, POSITIVE_Z, NEGATIVE_X, NEGATIVE_X, POSITIVE_Z, POSITIVE_Z), connectivity);
+        assertTrue(isConnected(connectivity, NEGATIVE_X, POSITIVE_Z));
+        assertTrue(isConnected(connectivity, POSITIVE_Z, NEGATIVE_X));
+        assertFalse(isConnected(connectivity, NEGATIVE_X, POSITIVE_X));
+        assertFalse(isConnected(connectivity, NEGATIVE_Z, POSITIVE_Z));
+        assertFalse(isConnected(connectivity, NEGATIVE_Y, POSITIVE_Y));
+    }
+
+    @Test
+    public void walkNeverStepsBackTowardsCamera() {
+        int size = 4;
+        int sections = 1;
+        long[] connectivity = new long[size * size * sections];
+        Arrays.fill(connectivity, ALL_CONNECTED);
+
+        //from the camera at 0, 0 the only way into 1, 1 turns back along -x
+        connectivity[node(size, sections, 0, 0, 1)] = NONE_CONNECTED;
+        connectivity[node(size, sections, 1, 0, 0)] = connectivity(NEGATIVE_X, POSITIVE_X);
+        connectivity[node(size, sections, 2, 0, 0)] = connectivity(NEGATIVE_X, POSITIVE_Z);
+
+        int[] visibleSections = new int[size * size];
+        int visible = new SectionVisibility().walk(size, sections, connectivity, 0, 0, 0, visibleSections);
+
+        assertTrue(isVisible(visibleSections, size, 0, 0, 0));
+        assertTrue(isVisible(visibleSections, size, 1, 0, 0));
+        assertTrue(isVisible(visibleSections, size, 0, 0, 1));
+        assertTrue(isVisible(visibleSections, size, 2, 0, 0));
+        assertTrue(isVisible(visibleSections, size, 2, 0, 1));
+        assertTrue(isVisible(visibleSections, size, 3, 0, 3));
+        assertFalse(isVisible(visibleSections, size, 3, 0, 0));
+        assertFalse(isVisible(visibleSections, size, 1, 0, 1));
+        assertFalse(isVisible(visibleSections, size, 0, 0, 2));
+        assertFalse(isVisible(visibleSections, size, 1, 0, 3));
+
+        int counted = 0;
+        for (int column : visibleSections) {
+            counted += Integer.bitCount(column);
+        }
+        assertEquals(counted, visible);
+    }
+
+    @Test
+    public void walkHidesSectionsBehindSolidGround() {
+        int size = 3;
+        int sections = Chunk.SECTIONS;
+
+        //stone up to the middle of section 4, air above
+        ChunkSection ground = solidSection();
+        fill(ground, SIZE / 2, SIZE - 1, 0);
+        ChunkSection shaft = solidSection();
+        fill(shaft, SIZE / 2, SIZE - 1, 0);
+        for (int y = 0; y < SIZE / 2; y++) {
+            shaft.setBlockId(7, y, 7, 0);
+        }
+
+        long[] connectivity = new long[size * size * sections];
+        for (int z = 0; z < size; z++) {
+            for (int x = 0; x < size; x++) {
+                for (int y = 0; y < sections; y++) {
+                    ChunkSection section = null;
+                    if (y < 4) {
+                        section = solidSection();
+                    } else if (y == 4) {
+                        section = (x == 2 && z == 2 ? shaft : ground);
+                    }
+                    connectivity[node(size, sections, x, y, z)] = SectionVisibility.compute(section);
+                }
+            }
+        }
+
+        int[] visibleSections = new int[size * size];
+        new SectionVisibility().walk(size, sections, connectivity, 1, 6, 1, visibleSections);
+
+        for (int z = 0; z < size; z++) {
+            for (int x = 0; x < size; x++) {
+                int expected = 0b11110000;
+                if (x == 2 && z == 2) {
+                    //the solid section under the shaft is reached, but the walk stops there
+                    expected |= 0b00001000;
+                }
+                assertEquals(expected, visibleSections[x + (z * size)], "column " + x + ", " + z);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,159 @@
+package cientistavuador.leitecraft;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author Cien
+ */
+public class WorldLightingTest {
+
+    private static final int SIZE = Chunk.CHUNK_SIZE;
+    private static final int HEIGHT = Chunk.CHUNK_HEIGHT;
+
+    //a world that only knows the chunks loaded into it, so edited chunks go through the same path as generated ones
+    private static class LoadedWorld extends World {
+
+        private final Map<Long, Chunk> loaded = new HashMap<>();
+        private final WorldLighting lighting = new WorldLighting(this);
+
+        private static long key(int x, int z) {
+            return (Integer.toUnsignedLong(x) << 32) | Integer.toUnsignedLong(z);
+        }
+
+        public void load(Chunk chunk) {
+            chunk.setLighting(ChunkLighting.computeLighting(chunk));
+            this.loaded.put(key(chunk.getChunkX(), chunk.getChunkZ()), chunk);
+            this.lighting.chunkLoaded(chunk);
+        }
+
+        @Override
+        public Chunk getLoadedChunk(int x, int z) {
+            return this.loaded.get(key(x, z));
+        }
+
+    }
+
+    @BeforeAll
+    public static void loadNatives() {
+        Natives.load();
+    }
+
+    //the 3x3 chunks around a center chunk, indexed like ChunkMatrix
+    private static Chunk[] generate(int centerX, int centerZ) {
+        Chunk[] chunks = new Chunk[3 * 3];
+        for (int z = -1; z <= 1; z++) {
+            for (int x = -1; x <= 1; x++) {
+                Chunk chunk = new Chunk(centerX + x, centerZ + z);
+                ChunkGenerator.generateChunk(chunk);
+                chunks[(x + 1) + ((z + 1) * 3)] = chunk;
+            }
+        }
+        return chunks;
+    }
+
+    //x and z are relative to the center chunk, from -CHUNK_SIZE to (CHUNK_SIZE * 2) - 1
+    private static void set(Chunk[] chunks, int x, int y, int z, Block block) {
+        int chunkX = Math.floorDiv(x, SIZE);
+        int chunkZ = Math.floorDiv(z, SIZE);
+        chunks[(chunkX + 1) + ((chunkZ + 1) * 3)].setBlock(x - (chunkX * SIZE), y, z - (chunkZ * SIZE), block);
+    }
+
+    private static void fill(Chunk[] chunks, int minX, int minY, int minZ, int maxX, int maxY, int maxZ, Block block) {
+        for (int y = minY; y <= maxY; y++) {
+            for (int z = minZ; z <= maxZ; z++) {
+                for (int x = minX; x <= maxX; x++) {
+                    set(chunks, x, y, z, block);
+                }
+            }
+        }
+    }
+
+    private static void load(Chunk[] chunks, Random random) {
+        List<Chunk> order = new ArrayList<>();
+        Collections.addAll(order, chunks);
+        Collections.shuffle(order, random);
+
+        LoadedWorld world = new LoadedWorld();
+        for (Chunk chunk : order) {
+            world.load(chunk);
+        }
+    }
+
+    //the baseline has a single channel, so it is compared with the brightest of sky and block light
+    private static void assertMatchesBaseline(Chunk[] chunks) {
+        ChunkMatrix matrix = new ChunkMatrix();
+        for (int i = 0; i < chunks.length; i++) {
+            matrix.setChunk(i, chunks[i]);
+        }
+        BaselineChunkLighting baseline = BaselineChunkLighting.computeLighting(matrix);
+
+        Chunk center = matrix.getChunk(0, 0);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int z = 0; z < SIZE; z++) {
+                for (int x = 0; x < SIZE; x++) {
+                    int actual = Math.max(center.getSkyLight(x, y, z), center.getBlockLight(x, y, z));
+                    assertEquals(baseline.getLightLevel(x, y, z), actual, "light at " + x + ", " + y + ", " + z);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void generatedNeighbourhoodsMatchBaseline() {
+        Random random = new Random(1357);
+        int[][] positions = {
+            {0, 0}, {-3, 7}, {12, -5}, {97, 64}
+        };
+        for (int[] position : positions) {
+            Chunk[] chunks = generate(position[0], position[1]);
+            load(chunks, random);
+            assertMatchesBaseline(chunks);
+        }
+    }
+
+    @Test
+    public void bordersMatchBaseline() {
+        Random random = new Random(2468);
+        int[][] positions = {
+            {0, 0}, {-7, 3}, {40, -18}
+        };
+        for (int[] position : positions) {
+            Chunk[] chunks = generate(position[0], position[1]);
+
+            //tunnels crossing every border of the center chunk, sealed from the surface
+            fill(chunks, -SIZE, 1, -SIZE, (SIZE * 2) - 1, 18, (SIZE * 2) - 1, Blocks.STONE);
+            fill(chunks, -8, 8, 6, SIZE + 7, 10, 8, Blocks.AIR);
+            fill(chunks, 3, 12, -8, 5, 14, SIZE + 7, Blocks.AIR);
+
+            //emitters on both sides of the borders and in a diagonal chunk
+            set(chunks, SIZE - 1, 8, 6, Blocks.LANTERN);
+            set(chunks, -1, 9, 8, Blocks.LANTERN);
+            set(chunks, SIZE, 8, 8, Blocks.LAVA);
+            set(chunks, 4, 12, 0, Blocks.LANTERN);
+            set(chunks, 4, 14, SIZE, Blocks.LANTERN);
+            fill(chunks, SIZE - 3, 4, SIZE - 3, SIZE + 2, 6, SIZE + 2, Blocks.AIR);
+            set(chunks, SIZE, 4, SIZE, Blocks.LANTERN);
+
+            //transparent blocks on the border let light through
+            set(chunks, 0, 8, 8, Blocks.GLASS);
+            set(chunks, 4, 13, SIZE - 1, Blocks.WATER);
+
+            //openings to the sky on border columns, one in the center chunk and one in a neighbour
+            fill(chunks, 0, 11, 7, 0, HEIGHT - 1, 7, Blocks.AIR);
+            fill(chunks, 4, 15, -1, 4, HEIGHT - 1, -1, Blocks.AIR);
+
+            load(chunks, random);
+            assertMatchesBaseline(chunks);
+        }
+    }
+
+}